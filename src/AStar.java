@@ -14,13 +14,25 @@ public class AStar extends SearchAlgorithm {
         this.heuristicType = heuristicType;
     }
 
+    // Marks the recorded g of an expanded state in solveLean
+    private static final int CLOSED = 1 << 30;
+
     @Override
     public List<RushHourGame> solve(RushHourGame initial) {
+        if (memoryLean) {
+            return solveLean(initial);
+        }
+        if (frontierType == FRONTIER_POOL) {
+            return solvePooled(initial);
+        }
+
         resetCounters();
         long startTime = System.currentTimeMillis();
 
-        // Priority queue ordered by f = g + h
-        PriorityQueue<SearchNode> frontier = new PriorityQueue<>(new Comparator<SearchNode>() {
+        // Frontier ordered by f = g + h, one node per state: a cheaper path to a state
+        // already in the frontier lowers that node in place (decrease-key)
+        long[] key = new long[initial.getKeyWords()];
+        Frontier frontier = createFrontier(key.length, new Comparator<SearchNode>() {
             @Override
             public int compare(SearchNode n1, SearchNode n2) {
                 if (n1.f != n2.f) {
@@ -33,22 +45,20 @@ public class AStar extends SearchAlgorithm {
                 // Second tie-breaking: prefer newer nodes
                 return 0;
             }
-        });
+        }, node -> node.f);
 
-        Set<RushHourGame> explored = new HashSet<>();
-        Map<RushHourGame, Integer> frontierCosts = new HashMap<>(); // Track best g values in frontier
+        // Explored states, kept as packed keys
+        KeySet explored = createKeySet(key.length);
+        MoveCursor moves = new MoveCursor();
 
         // Calculate initial heuristic
         int h = calculateHeuristic(initial);
-        SearchNode initialNode = new SearchNode(initial, null, 0, h, "Initial");
-        frontier.add(initialNode);
-        frontierCosts.put(initial, 0);
+        SearchNode initialNode = new SearchNode(initial, null, 0, h, SearchNode.NO_MOVE);
+        initial.packKey(key);
+        frontier.add(key, initialNode);
 
         while (!frontier.isEmpty()) {
             SearchNode node = frontier.poll();
-
-            // Remove from frontier costs when popped
-            frontierCosts.remove(node.state);
             nodesVisited++;
 
             // Check if goal state reached
@@ -58,34 +68,25 @@ public class AStar extends SearchAlgorithm {
                 return solution;
             }
 
-            explored.add(node.state);
+            node.state.packKey(key);
+            explored.add(key);
 
-            // Expand current node
-            for (RushHourGame nextState : node.state.getNextStates()) {
+            // Expand current node; a child state is only built when it is kept
+            for (moves.reset(node.state); moves.next(); ) {
                 int newG = node.g + 1; // Each move has cost 1
+                moves.packKey(key);
 
-                if (!explored.contains(nextState)) {
-                    Integer frontierG = frontierCosts.get(nextState);
+                if (!explored.contains(key)) {
+                    SearchNode frontierNode = frontier.get(key);
 
-                    if (frontierG == null) {
+                    if (frontierNode == null) {
                         // New state not in frontier
+                        RushHourGame nextState = moves.child();
                         h = calculateHeuristic(nextState);
-                        String action = getAction(node.state, nextState);
-                        SearchNode newNode = new SearchNode(nextState, node, newG, h, action);
-                        frontier.add(newNode);
-                        frontierCosts.put(nextState, newG);
-                    } else if (newG < frontierG) {
-                        // Found better path to state in frontier
-                        // Remove old node (we need to do this manually in Java)
-                        removeFromFrontier(frontier, nextState);
-                        frontierCosts.remove(nextState);
-
-                        // Add new better node
-                        h = calculateHeuristic(nextState);
-                        String action = getAction(node.state, nextState);
-                        SearchNode newNode = new SearchNode(nextState, node, newG, h, action);
-                        frontier.add(newNode);
-                        frontierCosts.put(nextState, newG);
+                        frontier.add(key, new SearchNode(nextState, node, newG, h, moves.move()));
+                    } else if (newG < frontierNode.g) {
+                        // Found better path to state in frontier: same state and h, lower g
+                        frontier.decreaseKey(key, new SearchNode(frontierNode.state, node, newG, frontierNode.h, moves.move()));
                     }
                 }
             }
@@ -95,15 +96,120 @@ public class AStar extends SearchAlgorithm {
         return null; // No solution found
     }
 
-    private void removeFromFrontier(PriorityQueue<SearchNode> frontier, RushHourGame state) {
-        Iterator<SearchNode> iterator = frontier.iterator();
-        while (iterator.hasNext()) {
-            SearchNode node = iterator.next();
-            if (node.state.equals(state)) {
-                iterator.remove();
-                break;
+    // Same search over a NodePool: nodes are int indices, the state of a node is loaded onto a
+    // WorkingBoard from its packed key when it is expanded, and one map gives the node of every
+    // state generated so far (explored when it is no longer in the frontier)
+    private List<RushHourGame> solvePooled(RushHourGame initial) {
+        resetCounters();
+        long startTime = System.currentTimeMillis();
+
+        long[] key = new long[initial.getKeyWords()];
+        NodePool pool = createNodePool(key.length);
+        NodePoolHeap frontier = createNodePoolHeap(pool, true);
+        KeyIntMap nodes = createKeyIntMap(key.length);
+        WorkingBoard board = new WorkingBoard(initial);
+        MoveCursor moves = new MoveCursor();
+
+        initial.packKey(key);
+        int root = pool.add(key, NodePool.NONE, 0, calculateHeuristic(initial), NodePool.NONE);
+        nodes.put(key, root);
+        frontier.add(root);
+
+        while (!frontier.isEmpty()) {
+            int node = frontier.poll();
+            nodesVisited++;
+            pool.getKey(node, key);
+            board.load(key);
+
+            // Check if goal state reached
+            if (board.isGoalState()) {
+                executionTime = System.currentTimeMillis() - startTime;
+                solution = buildSolution(pool, node, initial);
+                return solution;
+            }
+
+            int newG = pool.getG(node) + 1;
+            for (moves.reset(board); moves.next(); ) {
+                moves.packKey(key);
+                int child = nodes.get(key, NodePool.NONE);
+
+                if (child == NodePool.NONE) {
+                    // New state: its heuristic is read with the move applied to the board
+                    board.applyMove(moves.move());
+                    int h = calculateHeuristic(board);
+                    board.undoMove(moves.move());
+
+                    child = pool.add(key, node, newG, h, moves.move());
+                    nodes.put(key, child);
+                    frontier.add(child);
+                } else if (frontier.contains(child) && newG < pool.getG(child)) {
+                    // Found better path to state in frontier
+                    pool.update(child, node, newG, moves.move());
+                    frontier.decreaseKey(child);
+                }
             }
         }
+
+        executionTime = System.currentTimeMillis() - startTime;
+        return null; // No solution found
+    }
+
+    // Memory-lean A*: one packed key -> g map is the only record of a reached state (with CLOSED
+    // set once it is expanded) and the frontier holds bare keys with g and h. A lower g pushes a
+    // new entry and the old one is skipped when it comes out. The path is recovered from the
+    // recorded g values at the end
+    private List<RushHourGame> solveLean(RushHourGame initial) {
+        resetCounters();
+        long startTime = System.currentTimeMillis();
+
+        int words = initial.getKeyWords();
+        long[] key = new long[words];
+        long[] state = new long[words];
+        long[] probe = new long[words];
+        PackedKeyHeap frontier = createPackedKeyHeap(words);
+        KeyIntMap costs = createKeyIntMap(words);
+        WorkingBoard board = new WorkingBoard(initial);
+        MoveCursor moves = new MoveCursor();
+
+        initial.packKey(key);
+        costs.put(key, 0);
+        frontier.add(key, 0, calculateHeuristic(initial));
+
+        while (!frontier.isEmpty()) {
+            int g = frontier.poll(state);
+            if (costs.get(state, -1) != g) continue; // Stale entry or already expanded
+            costs.put(state, g | CLOSED);
+            nodesVisited++;
+            board.load(state);
+
+            // Check if goal state reached
+            if (board.isGoalState()) {
+                solution = recoverSolution(board.snapshot(), g, next -> {
+                    next.packKey(probe);
+                    int recorded = costs.get(probe, -1);
+                    return recorded < 0 ? -1 : recorded & ~CLOSED;
+                }, 0);
+                executionTime = System.currentTimeMillis() - startTime;
+                return solution;
+            }
+
+            for (moves.reset(board); moves.next(); ) {
+                moves.packKey(key);
+                int known = costs.get(key, -1);
+                if (known >= 0 && ((known & CLOSED) != 0 || known <= g + 1)) continue;
+
+                // New state, or a better path to a state in the frontier
+                board.applyMove(moves.move());
+                int h = calculateHeuristic(board);
+                board.undoMove(moves.move());
+
+                costs.put(key, g + 1);
+                frontier.add(key, g + 1, h);
+            }
+        }
+
+        executionTime = System.currentTimeMillis() - startTime;
+        return null; // No solution found
     }
 
     private int calculateHeuristic(RushHourGame state) {
@@ -117,6 +223,17 @@ public class AStar extends SearchAlgorithm {
         }
     }
 
+    private int calculateHeuristic(WorkingBoard board) {
+        switch (heuristicType) {
+            case HEURISTIC_MANHATTAN:
+                return board.getHeuristic1();
+            case HEURISTIC_BLOCKING_PIECES:
+                return board.getHeuristic2();
+            default:
+                return board.getHeuristic1();
+        }
+    }
+
     @Override
     public String getAlgorithmName() {
         return "A* Search";
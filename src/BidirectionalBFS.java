@@ -0,0 +1,406 @@
+package src;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+// Bidirectional breadth-first search between the initial state and the whole goal set. Moves
+// cost 1 and are reversible (a piece can always slide back, see MoveCursor.reverse), so the
+// predecessors of a state are its successors and the backward side runs on the same move
+// generator. The backward side starts from every goal configuration: each piece anywhere in its
+// lane, pieces of a lane in their original order and the cells between the primary piece and
+// the exit free. That set stays implicit (the goal test) and is only enumerated once it is the
+// smaller side to expand. The sides expand whole layers, always the smaller one, and the first
+// state reached from both sides lies on a shortest path, which is rebuilt from the depths.
+public class BidirectionalBFS extends SearchAlgorithm {
+    // The goal set is never enumerated past this many states, and counting it may take at most
+    // this many placement steps per state asked for; past either the search stays forward
+    public static final int MAX_GOAL_STATES = 1 << 22;
+    private static final int COUNT_STEPS_PER_STATE = 16;
+
+    // One map holds both sides: forward depth d as d, backward depth d as -(d + 1)
+    private static final int UNSEEN = Integer.MIN_VALUE;
+
+    private int forwardExpanded;
+    private int backwardExpanded;
+    private long goalStates;          // exact size of the goal set, -1 when it was not counted
+    private long goalCountTried;      // largest count asked for while it is not known
+
+    @Override
+    public List<RushHourGame> solve(RushHourGame initial) {
+        resetCounters();
+        forwardExpanded = 0;
+        backwardExpanded = 0;
+        goalStates = -1;
+        goalCountTried = 0;
+        long startTime = System.currentTimeMillis();
+
+        if (initial.isGoalState()) {
+            executionTime = System.currentTimeMillis() - startTime;
+            solution = buildSolution(initial, new int[0]);
+            return solution;
+        }
+
+        int words = initial.getKeyWords();
+        long[] key = new long[words];
+        KeyIntMap depths = createKeyIntMap(words);
+        GoalEnumerator goals = new GoalEnumerator(initial.getPieceTable());
+        WorkingBoard board = new WorkingBoard(initial);
+        MoveCursor moves = new MoveCursor();
+
+        initial.packKey(key);
+        depths.put(key, 0);
+        long[] forward = Arrays.copyOf(key, 64 * words);
+        int forwardSize = 1;
+        int forwardDepth = 0;
+        long[] backward = null;
+        int backwardSize = 0;
+        int backwardDepth = 0;
+        long[] nextLayer = new long[64 * words];
+
+        while (true) {
+            // Expand the smaller side; the goal set is only counted as far as needed to tell
+            boolean expandBackward;
+            if (backward == null) {
+                expandBackward = hasFewerGoals(goals, forwardSize);
+                if (goalStates == 0) break;
+                if (expandBackward) {
+                    backward = goals.collect(depths, -1, (int) goalStates);
+                    backwardSize = (int) goalStates;
+                }
+            } else {
+                expandBackward = backwardSize < forwardSize;
+            }
+            if (expandBackward ? backwardSize == 0 : forwardSize == 0) break;
+
+            long[] layer = expandBackward ? backward : forward;
+            int layerSize = expandBackward ? backwardSize : forwardSize;
+            int depth = expandBackward ? backwardDepth : forwardDepth;
+            int nextSize = 0;
+            for (int i = 0; i < layerSize; i++) {
+                System.arraycopy(layer, i * words, key, 0, words);
+                board.load(key);
+                nodesVisited++;
+                if (expandBackward) {
+                    backwardExpanded++;
+                } else {
+                    forwardExpanded++;
+                }
+
+                for (moves.reset(board); moves.next(); ) {
+                    moves.packKey(key);
+                    int seen = depths.get(key, UNSEEN);
+
+                    // A state reached from both sides: forward depth + backward depth moves
+                    int forwardMeet = -1, backwardMeet = -1;
+                    if (expandBackward) {
+                        if (seen < 0 && seen != UNSEEN) continue;
+                        if (seen >= 0) {
+                            forwardMeet = seen;
+                            backwardMeet = depth + 1;
+                        }
+                    } else {
+                        if (seen >= 0) continue;
+                        if (moves.isGoal()) {
+                            backwardMeet = 0;
+                        } else if (seen != UNSEEN) {
+                            backwardMeet = -seen - 1;
+                        }
+                        if (backwardMeet >= 0) {
+                            forwardMeet = depth + 1;
+                        }
+                    }
+                    if (forwardMeet >= 0) {
+                        board.applyMove(moves.move());
+                        solution = joinPaths(initial, board.snapshot(), forwardMeet, backwardMeet, depths);
+                        executionTime = System.currentTimeMillis() - startTime;
+                        return solution;
+                    }
+
+                    depths.put(key, expandBackward ? -(depth + 1) - 1 : depth + 1);
+                    if ((nextSize + 1) * words > nextLayer.length) {
+                        nextLayer = Arrays.copyOf(nextLayer, nextLayer.length * 2);
+                    }
+                    System.arraycopy(key, 0, nextLayer, nextSize * words, words);
+                    nextSize++;
+                }
+            }
+
+            // The expanded layer's array is reused for the layer after next
+            if (expandBackward) {
+                backward = nextLayer;
+                backwardSize = nextSize;
+                backwardDepth++;
+            } else {
+                forward = nextLayer;
+                forwardSize = nextSize;
+                forwardDepth++;
+            }
+            nextLayer = layer;
+        }
+
+        // One side ran out of states without meeting the other: no solution
+        executionTime = System.currentTimeMillis() - startTime;
+        return null;
+    }
+
+    // True when the goal set is known to have fewer than 'limit' states. A count is only tried
+    // again once the forward layer has doubled, and each try stops at twice the last one in
+    // states and at COUNT_STEPS_PER_STATE steps per state, so counting costs at most a constant
+    // factor of the forward search, however many dead ends the placements run into
+    private boolean hasFewerGoals(GoalEnumerator goals, int limit) {
+        if (goalStates >= 0) return goalStates < limit;
+        if (limit <= goalCountTried || goalCountTried >= MAX_GOAL_STATES) return false;
+
+        goalCountTried = Math.min(Math.max(limit, 2 * goalCountTried), MAX_GOAL_STATES);
+        long count = goals.count(goalCountTried, goalCountTried * COUNT_STEPS_PER_STATE);
+        if (count >= 0 && count < goalCountTried) {
+            goalStates = count;
+        }
+        return count >= 0 && count < limit;
+    }
+
+    // Path through the meeting state: forward depths lead back to the initial state, backward
+    // depths on to a goal state
+    private Solution joinPaths(RushHourGame initial, RushHourGame meet, int forwardDepth, int backwardDepth,
+                               KeyIntMap depths) {
+        long[] probe = new long[initial.getKeyWords()];
+        ToIntFunction<RushHourGame> forwardDepthOf = state -> {
+            state.packKey(probe);
+            int value = depths.get(probe, UNSEEN);
+            return value >= 0 ? value : -1;
+        };
+        ToIntFunction<RushHourGame> backwardDepthOf = state -> {
+            if (state.isGoalState()) return 0;
+            state.packKey(probe);
+            int value = depths.get(probe, UNSEEN);
+            return value < 0 && value != UNSEEN ? -value - 1 : -1;
+        };
+
+        int[] toInitial = descend(meet, forwardDepth, forwardDepthOf);
+        int[] toGoal = descend(meet, backwardDepth, backwardDepthOf);
+        int[] moves = new int[forwardDepth + backwardDepth];
+        for (int i = 0; i < forwardDepth; i++) {
+            moves[i] = MoveCursor.reverse(toInitial[forwardDepth - 1 - i]);
+        }
+        System.arraycopy(toGoal, 0, moves, forwardDepth, backwardDepth);
+        return buildSolution(initial, moves);
+    }
+
+    // Moves from 'state' down one recorded depth per step to depth 0
+    private static int[] descend(RushHourGame state, int depth, ToIntFunction<RushHourGame> depthOf) {
+        int[] moves = new int[depth];
+        MoveCursor neighbours = new MoveCursor();
+        for (int k = depth; k > 0; k--) {
+            RushHourGame next = null;
+            for (neighbours.reset(state); neighbours.next(); ) {
+                RushHourGame candidate = neighbours.child();
+                if (depthOf.applyAsInt(candidate) == k - 1) {
+                    moves[depth - k] = neighbours.move();
+                    next = candidate;
+                    break;
+                }
+            }
+            if (next == null) {
+                throw new IllegalStateException("No neighbour recorded at depth " + (k - 1));
+            }
+            state = next;
+        }
+        return moves;
+    }
+
+    // Goal configurations of one puzzle, walked depth-first one piece at a time. The next piece
+    // is always the one with the fewest free offsets left, so a piece that no longer fits ends
+    // the branch at once. Pieces of a lane keep their initial order because they cannot pass
+    // each other, so a configuration with two of them swapped is never reachable and is left out
+    private static final class GoalEnumerator {
+        private final PieceTable table;
+        private final int primary;
+        private final int[][] lanePieces;  // per piece: the pieces of its lane in lane order
+        private final int[] laneIndex;     // position of each piece in its lane
+        private final byte[] offsets;
+        private final boolean[] placed;
+        private final long[] rowBits;      // occupied cells per row (bit = column), see PieceTable.rowOccupancy
+        private final long[] key;
+        private final boolean solvable;
+
+        private long limit;
+        private long count;
+        private long steps;                // fit tests left before count() gives up
+
+        // Set while collecting
+        private KeyIntMap depths;
+        private int value;
+        private long[] keys;
+
+        GoalEnumerator(PieceTable table) {
+            this.table = table;
+            this.primary = table.getPrimaryIndex();
+            int count = table.getPieceCount();
+            byte[] initialOffsets = table.initialOffsets();
+
+            this.lanePieces = new int[count][];
+            this.laneIndex = new int[count];
+            for (int p = 0; p < count; p++) {
+                List<Integer> lane = new ArrayList<>();
+                for (int q = 0; q < count; q++) {
+                    if (table.isHorizontal(q) == table.isHorizontal(p) && table.getLane(q) == table.getLane(p)) {
+                        lane.add(q);
+                    }
+                }
+                lane.sort(Comparator.comparingInt(q -> initialOffsets[q]));
+                lanePieces[p] = lane.stream().mapToInt(Integer::intValue).toArray();
+                laneIndex[p] = lane.indexOf(p);
+            }
+            this.offsets = new byte[count];
+            this.placed = new boolean[count];
+            this.rowBits = new long[table.getRows()];
+            this.key = new long[table.getKeyWords()];
+            this.solvable = primary >= 0 && table.isExitInPrimaryLane();
+        }
+
+        // Number of goal configurations, counting stops at 'limit'; -1 when it takes more
+        // than 'maxSteps' fit tests
+        long count(long limit, long maxSteps) {
+            this.limit = limit;
+            this.count = 0;
+            this.steps = maxSteps;
+            this.keys = null;
+            if (solvable) {
+                place(0);
+            }
+            return steps >= 0 ? count : -1;
+        }
+
+        // Puts all 'states' goal configurations (see count) into 'depths' with 'value' and
+        // returns their packed keys
+        long[] collect(KeyIntMap depths, int value, int states) {
+            this.depths = depths;
+            this.value = value;
+            this.keys = new long[Math.max(states, 64) * key.length];
+            this.limit = states;
+            this.count = 0;
+            this.steps = Long.MAX_VALUE;
+            if (solvable) {
+                place(0);
+            }
+            long[] result = keys;
+            this.keys = null;
+            this.depths = null;
+            return result;
+        }
+
+        private void place(int placedCount) {
+            if (placedCount == offsets.length) {
+                if (keys != null) {
+                    table.packKey(offsets, key, 0);
+                    depths.put(key, value);
+                    System.arraycopy(key, 0, keys, (int) count * key.length, key.length);
+                }
+                count++;
+                return;
+            }
+
+            // Most constrained piece first; one without any free offset is a dead end
+            int next = -1;
+            int nextFree = Integer.MAX_VALUE;
+            for (int p = 0; p < offsets.length && nextFree > 1; p++) {
+                if (placed[p]) continue;
+                int free = 0;
+                for (int offset = lowest(p); offset <= highest(p) && free < nextFree; offset++) {
+                    if (fits(p, offset)) {
+                        free++;
+                    }
+                }
+                if (free == 0 || steps < 0) return;
+                if (free < nextFree) {
+                    next = p;
+                    nextFree = free;
+                }
+            }
+
+            placed[next] = true;
+            for (int offset = lowest(next); offset <= highest(next) && count < limit && steps >= 0; offset++) {
+                if (!fits(next, offset)) continue;
+
+                offsets[next] = (byte) offset;
+                long cells = cells(next, offset);
+                toggle(next, offset, cells);
+                place(placedCount + 1);
+                toggle(next, offset, cells);
+            }
+            placed[next] = false;
+        }
+
+        // Offsets of piece p between the nearest placed pieces before and after it in its lane
+        private int lowest(int p) {
+            int[] lane = lanePieces[p];
+            for (int i = laneIndex[p] - 1; i >= 0; i--) {
+                if (placed[lane[i]]) return offsets[lane[i]] + table.getLength(lane[i]);
+            }
+            return 0;
+        }
+
+        private int highest(int p) {
+            int[] lane = lanePieces[p];
+            for (int i = laneIndex[p] + 1; i < lane.length; i++) {
+                if (placed[lane[i]]) return offsets[lane[i]] - table.getLength(p);
+            }
+            return table.laneLength(p) - table.getLength(p);
+        }
+
+        // Cells of piece p at an offset, as one row mask for horizontal pieces (the primary
+        // piece also claims the cells between it and the exit) and a column bit otherwise
+        private long cells(int p, int offset) {
+            if (!table.isHorizontal(p)) return 1L << table.getLane(p);
+            long cells = (-1L >>> (64 - table.getLength(p))) << offset;
+            return p == primary ? cells | table.exitAhead(offset) : cells;
+        }
+
+        private boolean fits(int p, int offset) {
+            steps--;
+            long cells = cells(p, offset);
+            if (table.isHorizontal(p)) {
+                return (rowBits[table.getLane(p)] & cells) == 0L;
+            }
+            for (int row = offset; row < offset + table.getLength(p); row++) {
+                if ((rowBits[row] & cells) != 0L) return false;
+            }
+            return true;
+        }
+
+        private void toggle(int p, int offset, long cells) {
+            if (table.isHorizontal(p)) {
+                rowBits[table.getLane(p)] ^= cells;
+                return;
+            }
+            for (int row = offset; row < offset + table.getLength(p); row++) {
+                rowBits[row] ^= cells;
+            }
+        }
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "Bidirectional BFS";
+    }
+
+    @Override
+    public String getAlgorithmDescription() {
+        return "Bidirectional BFS searches forward from the start and backward from every goal " +
+                "configuration at once, always expanding the smaller side, until both meet. " +
+                "It finds the optimal solution (minimum number of moves).";
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("algorithm", getAlgorithmName());
+        stats.put("nodes_visited", nodesVisited);
+        stats.put("execution_time", executionTime);
+        stats.put("solution_length", solution != null ? solution.size() - 1 : -1);
+        stats.put("optimal", true);
+        stats.put("forward_expanded", forwardExpanded);
+        stats.put("backward_expanded", backwardExpanded);
+        stats.put("goal_states", goalStates);
+        return stats;
+    }
+}
@@ -0,0 +1,104 @@
+package src;
+
+import java.util.Arrays;
+
+// Approximate seen set for state spaces too big to store exactly (bitstate hashing, as in
+// model checkers): a fixed bit array where every key sets 'hashes' bits picked by double
+// hashing, so memory never grows past the array however many states are added. A key whose
+// bits are all set already counts as seen, which is wrong with the probability
+// falsePositiveRate(); such states are pruned, so a search using it may miss solutions or
+// return longer ones, but it never reports a path that is not there.
+public final class BitstateSet implements KeySet {
+    private final long[] bits;
+    private final long mask;
+    private final int hashes;
+    private int size;
+
+    // Largest power-of-two bit array that fits in maxBytes
+    public BitstateSet(long maxBytes, int hashes) {
+        if (maxBytes < 8 || hashes < 1) {
+            throw new IllegalArgumentException("Bitstate needs at least 8 bytes and one hash");
+        }
+        long bitCount = Long.highestOneBit(Math.min(maxBytes, 8L * Integer.MAX_VALUE) * 8);
+        if (bitCount >>> 6 > Integer.MAX_VALUE) {
+            bitCount >>>= 1;
+        }
+        this.bits = new long[(int) (bitCount >>> 6)];
+        this.mask = bitCount - 1;
+        this.hashes = hashes;
+    }
+
+    // Returns true when at least one of the key's bits was still clear
+    @Override
+    public boolean add(long[] key) {
+        long h1 = mix(key, 0x9E3779B97F4A7C15L);
+        long h2 = mix(key, 0xC2B2AE3D27D4EB4FL) | 1L;
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & mask;
+            int word = (int) (bit >>> 6);
+            long flag = 1L << bit;
+            if ((bits[word] & flag) == 0L) {
+                bits[word] |= flag;
+                added = true;
+            }
+        }
+        if (added) {
+            size++;
+        }
+        return added;
+    }
+
+    @Override
+    public boolean contains(long[] key) {
+        long h1 = mix(key, 0x9E3779B97F4A7C15L);
+        long h2 = mix(key, 0xC2B2AE3D27D4EB4FL) | 1L;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & mask;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0L) return false;
+        }
+        return true;
+    }
+
+    // Number of keys added as new (states wrongly taken as seen are not counted)
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(bits, 0L);
+        size = 0;
+    }
+
+    @Override
+    public long memoryUsage() {
+        return 8L * bits.length;
+    }
+
+    public long getBitCount() {
+        return mask + 1;
+    }
+
+    public int getHashCount() {
+        return hashes;
+    }
+
+    // Estimated chance that a new state is taken as seen after size() additions,
+    // (1 - e^(-k n / m))^k for k hashes, n keys and m bits
+    public double falsePositiveRate() {
+        double filled = 1.0 - Math.exp(-(double) hashes * size / (mask + 1));
+        return Math.pow(filled, hashes);
+    }
+
+    private static long mix(long[] key, long seed) {
+        long h = seed;
+        for (long word : key) {
+            h = (h ^ word) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        h *= 0x94D049BB133111EBL;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,164 @@
+package src;
+
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+// Bucket queue over small non-negative integer priorities (Dial's algorithm): bucket i holds the
+// nodes of priority i as a doubly linked list of handles, and poll() takes the head of the
+// lowest non-empty bucket. Nodes are pushed at the head, so among equal priorities the most
+// recently generated (usually the deepest) node comes out first, always in the same order.
+// add, decreaseKey and poll are O(1) apart from skipping empty buckets, which only happens
+// when the lowest priority grows. Handles and the key index work like in IndexedNodeHeap.
+public final class BucketQueue implements Frontier {
+    private static final int NONE = -1;
+    private static final int MAX_PRIORITY = 1 << 24;
+
+    private final int words;
+    private ToIntFunction<SearchNode> priority;
+    private final PackedKeyIntMap handles;
+    private int[] heads = new int[64];        // first handle of each bucket
+    private int lowest;                       // no bucket below this one has nodes
+    private int size;
+
+    // Per handle: node, bucket, list links and packed key; unused handles wait in free[]
+    private SearchNode[] nodes = new SearchNode[64];
+    private int[] buckets = new int[64];
+    private int[] next = new int[64];
+    private int[] prev = new int[64];
+    private long[] keys;
+    private int[] free = new int[64];
+    private int freeCount;
+    private int handleCount;
+
+    private final long[] probe;
+
+    public BucketQueue(int words, ToIntFunction<SearchNode> priority) {
+        this.words = words;
+        this.priority = priority;
+        this.handles = new PackedKeyIntMap(words);
+        this.keys = new long[nodes.length * words];
+        this.probe = new long[words];
+        Arrays.fill(heads, NONE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public SearchNode get(long[] key) {
+        int handle = handles.get(key, NONE);
+        return handle != NONE ? nodes[handle] : null;
+    }
+
+    @Override
+    public void add(long[] key, SearchNode node) {
+        int handle = newHandle();
+        System.arraycopy(key, 0, keys, handle * words, words);
+        handles.put(key, handle);
+        push(handle, node);
+        size++;
+    }
+
+    // The node leaves its old bucket and goes to the head of its new one, ahead of every
+    // node that was already waiting there
+    @Override
+    public void decreaseKey(long[] key, SearchNode node) {
+        int handle = handles.get(key, NONE);
+        if (handle == NONE) {
+            throw new IllegalArgumentException("State is not in the queue");
+        }
+        unlink(handle);
+        push(handle, node);
+    }
+
+    @Override
+    public SearchNode poll() {
+        if (size == 0) return null;
+
+        while (heads[lowest] == NONE) {
+            lowest++;
+        }
+        int handle = heads[lowest];
+        SearchNode first = nodes[handle];
+        unlink(handle);
+        System.arraycopy(keys, handle * words, probe, 0, words);
+        handles.remove(probe);
+        nodes[handle] = null;
+        free[freeCount++] = handle;
+        size--;
+        return first;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(nodes, 0, handleCount, null);
+        handles.clear();
+        lowest = 0;
+        size = 0;
+        freeCount = 0;
+        handleCount = 0;
+    }
+
+    // Empties the queue for a new search by another priority, keeping its arrays (see SolverContext)
+    public void reset(ToIntFunction<SearchNode> priority) {
+        clear();
+        this.priority = priority;
+    }
+
+    private void push(int handle, SearchNode node) {
+        int bucket = priority.applyAsInt(node);
+        if (bucket < 0 || bucket >= MAX_PRIORITY) {
+            throw new IllegalArgumentException("Priority out of range: " + bucket);
+        }
+        if (bucket >= heads.length) {
+            int oldLength = heads.length;
+            heads = Arrays.copyOf(heads, Math.max(bucket + 1, oldLength * 2));
+            Arrays.fill(heads, oldLength, heads.length, NONE);
+        }
+
+        nodes[handle] = node;
+        buckets[handle] = bucket;
+        prev[handle] = NONE;
+        next[handle] = heads[bucket];
+        if (heads[bucket] != NONE) {
+            prev[heads[bucket]] = handle;
+        }
+        heads[bucket] = handle;
+        lowest = Math.min(lowest, bucket);
+    }
+
+    private void unlink(int handle) {
+        if (prev[handle] != NONE) {
+            next[prev[handle]] = next[handle];
+        } else {
+            heads[buckets[handle]] = next[handle];
+        }
+        if (next[handle] != NONE) {
+            prev[next[handle]] = prev[handle];
+        }
+    }
+
+    private int newHandle() {
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+        if (handleCount == nodes.length) {
+            int capacity = handleCount * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            buckets = Arrays.copyOf(buckets, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            keys = Arrays.copyOf(keys, capacity * words);
+            free = Arrays.copyOf(free, capacity);
+        }
+        return handleCount++;
+    }
+}
@@ -0,0 +1,23 @@
+package src;
+
+// Open list of the best-first engines: at most one node per state, looked up by packed key.
+// IndexedNodeHeap orders nodes with a comparator, BucketQueue by an integer priority.
+public interface Frontier {
+    boolean isEmpty();
+
+    int size();
+
+    // Node of the state with this packed key, or null when the state is not in the frontier
+    SearchNode get(long[] key);
+
+    // Adds the node of a state that is not in the frontier yet
+    void add(long[] key, SearchNode node);
+
+    // Replaces the node of a state already in the frontier by one that does not order after it
+    void decreaseKey(long[] key, SearchNode node);
+
+    // Removes and returns the first node, null when the frontier is empty
+    SearchNode poll();
+
+    void clear();
+}
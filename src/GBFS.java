@@ -15,11 +15,16 @@ public class GBFS extends SearchAlgorithm {
 
     @Override
     public List<RushHourGame> solve(RushHourGame initial) {
+        if (frontierType == FRONTIER_POOL) {
+            return solvePooled(initial);
+        }
+
         resetCounters();
         long startTime = System.currentTimeMillis();
 
-        // Priority queue ordered by heuristic value (h only)
-        PriorityQueue<SearchNode> frontier = new PriorityQueue<>(new Comparator<SearchNode>() {
+        // Frontier ordered by heuristic value (h only)
+        long[] key = new long[initial.getKeyWords()];
+        Frontier frontier = createFrontier(key.length, new Comparator<SearchNode>() {
             @Override
             public int compare(SearchNode n1, SearchNode n2) {
                 if (n1.h != n2.h) {
@@ -28,19 +33,26 @@ public class GBFS extends SearchAlgorithm {
                 // Tie-breaking: prefer newer nodes (LIFO for better performance)
                 return 0;
             }
-        });
+        }, node -> node.h);
+
+        // A polled state moves straight from the frontier to explored, so one set of packed
+        // keys covers both (states that are either explored or waiting in the frontier)
+        KeySet seen = createSeenSet(key.length);
+        MoveCursor moves = new MoveCursor();
 
-        Set<RushHourGame> explored = new HashSet<>();
-        Set<RushHourGame> frontierStates = new HashSet<>(); // Track states in frontier
+        // With bitstate hashing the nodes share its memory: a node with its frontier index
+        // entry, a key and an int in a table at worst a third full after doubling
+        long nodeLimit = bitstateNodeLimit(SEARCH_NODE_BYTES + 3 * (8L * key.length + 4));
+        long created = 1;
 
         // Calculate initial heuristic
         int h = calculateHeuristic(initial);
-        frontier.add(new SearchNode(initial, null, 0, h, "Initial"));
-        frontierStates.add(initial);
+        initial.packKey(key);
+        frontier.add(key, new SearchNode(initial, null, 0, h, SearchNode.NO_MOVE));
+        seen.add(key);
 
         while (!frontier.isEmpty()) {
             SearchNode node = frontier.poll();
-            frontierStates.remove(node.state);
             nodesVisited++;
 
             // Check if goal state reached
@@ -50,18 +62,78 @@ public class GBFS extends SearchAlgorithm {
                 return solution;
             }
 
-            explored.add(node.state);
+            // Expand current node; a child state is only built when it is new
+            for (moves.reset(node.state); moves.next(); ) {
+                moves.packKey(key);
+                if (seen.add(key)) {
+                    if (++created > nodeLimit) {
+                        bitstateLimitReached = true;
+                        executionTime = System.currentTimeMillis() - startTime;
+                        return null;
+                    }
 
-            // Expand current node
-            for (RushHourGame nextState : node.state.getNextStates()) {
-                if (!explored.contains(nextState) && !frontierStates.contains(nextState)) {
                     // Calculate heuristic for new state
+                    RushHourGame nextState = moves.child();
                     h = calculateHeuristic(nextState);
-                    String action = getAction(node.state, nextState);
 
                     // GBFS doesn't track g value, but we set it for consistency
-                    frontier.add(new SearchNode(nextState, node, node.g + 1, h, action));
-                    frontierStates.add(nextState);
+                    frontier.add(key, new SearchNode(nextState, node, node.g + 1, h, moves.move()));
+                }
+            }
+        }
+
+        executionTime = System.currentTimeMillis() - startTime;
+        return null; // No solution found
+    }
+
+    // Same search over a NodePool: nodes are int indices and the state of a node is loaded
+    // onto a WorkingBoard from its packed key when it is expanded
+    private List<RushHourGame> solvePooled(RushHourGame initial) {
+        resetCounters();
+        long startTime = System.currentTimeMillis();
+
+        long[] key = new long[initial.getKeyWords()];
+        NodePool pool = createNodePool(key.length);
+        NodePoolHeap frontier = createNodePoolHeap(pool, false);
+        KeySet seen = createSeenSet(key.length);
+        WorkingBoard board = new WorkingBoard(initial);
+        MoveCursor moves = new MoveCursor();
+
+        // With bitstate hashing the pool and its heap share its memory
+        long nodeLimit = bitstateNodeLimit(8L * key.length + 16 + 4);
+
+        initial.packKey(key);
+        frontier.add(pool.add(key, NodePool.NONE, 0, calculateHeuristic(initial), NodePool.NONE));
+        seen.add(key);
+
+        while (!frontier.isEmpty()) {
+            int node = frontier.poll();
+            nodesVisited++;
+            pool.getKey(node, key);
+            board.load(key);
+
+            // Check if goal state reached
+            if (board.isGoalState()) {
+                executionTime = System.currentTimeMillis() - startTime;
+                solution = buildSolution(pool, node, initial);
+                return solution;
+            }
+
+            for (moves.reset(board); moves.next(); ) {
+                moves.packKey(key);
+                if (seen.add(key)) {
+                    if (pool.size() >= nodeLimit) {
+                        bitstateLimitReached = true;
+                        executionTime = System.currentTimeMillis() - startTime;
+                        return null;
+                    }
+
+                    // New state: its heuristic is read with the move applied to the board
+                    board.applyMove(moves.move());
+                    int h = calculateHeuristic(board);
+                    board.undoMove(moves.move());
+
+                    frontier.add(pool.add(key, node, pool.getG(node) + 1, h, moves.move()));
                 }
             }
         }
@@ -81,6 +153,17 @@ public class GBFS extends SearchAlgorithm {
         }
     }
 
+    private int calculateHeuristic(WorkingBoard board) {
+        switch (heuristicType) {
+            case HEURISTIC_MANHATTAN:
+                return board.getHeuristic1();
+            case HEURISTIC_BLOCKING_PIECES:
+                return board.getHeuristic2();
+            default:
+                return board.getHeuristic1();
+        }
+    }
+
     @Override
     public String getAlgorithmName() {
         return "Greedy Best First Search (GBFS)";
@@ -122,6 +205,10 @@ public class GBFS extends SearchAlgorithm {
         stats.put("execution_time", executionTime);
         stats.put("solution_length", solution != null ? solution.size() - 1 : -1);
         stats.put("optimal", false); // GBFS doesn't guarantee optimal solution
+        if (isBitstate()) {
+            stats.put("bitstate_false_positive_rate", getBitstateFalsePositiveRate());
+            stats.put("bitstate_limit_reached", bitstateLimitReached);
+        }
         return stats;
     }
 
@@ -8,6 +8,13 @@ public class IDAStar extends SearchAlgorithm {
     private int threshold;
     private int nextThreshold;
 
+    // Depth-first state: one working board changed in place with applyMove / undoMove,
+    // and one reusable frame per depth, so nothing is allocated along the search path
+    private WorkingBoard board;
+    private List<Frame> frames = new ArrayList<>();
+    private long[] childKey;
+    private int goalDepth;
+
     // Heuristic types
     public static final int HEURISTIC_MANHATTAN = 1;
     public static final int HEURISTIC_BLOCKING_PIECES = 2;
@@ -21,17 +28,24 @@ public class IDAStar extends SearchAlgorithm {
         resetCounters();
         long startTime = System.currentTimeMillis();
 
+        board = new WorkingBoard(initial);
+        childKey = new long[initial.getKeyWords()];
+
+        // Frames are kept across solves, but only while the keys have the same width
+        if (!frames.isEmpty() && frames.get(0).key.length != childKey.length) {
+            frames.clear();
+        }
+
         // Initialize threshold with initial heuristic value
-        threshold = calculateHeuristic(initial);
+        threshold = calculateHeuristic(board);
 
         while (threshold != Integer.MAX_VALUE) {
             nextThreshold = Integer.MAX_VALUE;
-            SearchNode result = depthLimitedSearch(initial, 0, new ArrayList<>());
 
-            if (result != null) {
+            if (depthLimitedSearch(0)) {
                 // Solution found
                 executionTime = System.currentTimeMillis() - startTime;
-                solution = buildSolution(result);
+                solution = buildSolution(initial, solutionMoves());
                 return solution;
             }
 
@@ -42,65 +56,123 @@ public class IDAStar extends SearchAlgorithm {
         return null; // No solution found
     }
 
-    private SearchNode depthLimitedSearch(RushHourGame state, int g, List<RushHourGame> path) {
+    // Searches below the working board at depth g; on success the moves of the solution
+    // are left in frames[0 .. goalDepth)
+    private boolean depthLimitedSearch(int g) {
         nodesVisited++;
 
-        int h = calculateHeuristic(state);
+        int h = calculateHeuristic(board);
         int f = g + h;
 
         // If f exceeds threshold, update next threshold and prune
         if (f > threshold) {
             nextThreshold = Math.min(nextThreshold, f);
-            return null;
+            return false;
         }
 
         // Check if goal reached
-        if (state.isGoalState()) {
-            // Create solution node
-            SearchNode solutionNode = new SearchNode(state, null, g, h, "Goal");
-
-            // Build parent nodes for solution path
-            SearchNode current = solutionNode;
-            for (int i = path.size() - 1; i >= 0; i--) {
-                RushHourGame prevState = path.get(i);
-                String action = i > 0 ? getAction(path.get(i - 1), prevState) : "Initial";
-                SearchNode parent = new SearchNode(prevState, null, i, calculateHeuristic(prevState), action);
-                current.parent = parent;
-                current = parent;
+        if (board.isGoalState()) {
+            goalDepth = g;
+            return true;
+        }
+
+        // Expand current node: keep the children that are not on the path, with their h
+        Frame frame = frameAt(g);
+        frame.clear();
+        for (MoveCursor moves = frame.moves.reset(board); moves.next(); ) {
+            // Check for cycles in path
+            moves.packKey(childKey);
+            if (isOnPath(childKey, g)) continue;
+
+            board.applyMove(moves.move());
+            frame.add(moves.move(), calculateHeuristic(board));
+            board.undoMove(moves.move());
+        }
+
+        // Sort by f-value for better pruning; every child has the same g, so by h (stable)
+        frame.sortByH();
+
+        board.packKey(frame.key);
+        for (int i = 0; i < frame.count; i++) {
+            frame.move = frame.children[i];
+            board.applyMove(frame.move);
+            if (depthLimitedSearch(g + 1)) {
+                return true;
             }
+            board.undoMove(frame.move);
+        }
 
-            return solutionNode;
+        return false; // No solution found at this threshold
+    }
+
+    // Is the state with this packed key one of the ancestors at depth 0 .. depth - 1
+    private boolean isOnPath(long[] key, int depth) {
+        for (int d = 0; d < depth; d++) {
+            if (Arrays.equals(frames.get(d).key, key)) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        // Expand current node
-        List<RushHourGame> nextStates = state.getNextStates();
+    // Moves of the path on the frame stack, from the initial state to the goal
+    private int[] solutionMoves() {
+        int[] moves = new int[goalDepth];
+        for (int d = 0; d < goalDepth; d++) {
+            moves[d] = frames.get(d).move;
+        }
+        return moves;
+    }
 
-        // Sort by f-value for better pruning (optional optimization)
-        nextStates.sort((s1, s2) -> {
-            int f1 = (g + 1) + calculateHeuristic(s1);
-            int f2 = (g + 1) + calculateHeuristic(s2);
-            return Integer.compare(f1, f2);
-        });
+    private Frame frameAt(int depth) {
+        while (frames.size() <= depth) {
+            frames.add(new Frame(childKey.length));
+        }
+        return frames.get(depth);
+    }
 
-        for (RushHourGame nextState : nextStates) {
-            // Check for cycles in path
-            if (!path.contains(nextState)) {
-                path.add(state); // Add current state to path
-                SearchNode result = depthLimitedSearch(nextState, g + 1, path);
-                path.remove(path.size() - 1); // Remove state from path
-
-                if (result != null) {
-                    // Update parent link
-                    if (result.parent == null && result.state.equals(nextState)) {
-                        String action = getAction(state, nextState);
-                        result.parent = new SearchNode(state, null, g, h, action);
-                    }
-                    return result;
-                }
+    // Children of the node at one depth, the packed key of that node and the move being tried
+    private static class Frame {
+        final MoveCursor moves = new MoveCursor();
+        final long[] key;
+        int[] children = new int[32];
+        int[] h = new int[32];
+        int count;
+        int move;
+
+        Frame(int keyWords) {
+            this.key = new long[keyWords];
+        }
+
+        void clear() {
+            count = 0;
+        }
+
+        void add(int child, int childH) {
+            if (count == children.length) {
+                children = Arrays.copyOf(children, count * 2);
+                h = Arrays.copyOf(h, count * 2);
             }
+            children[count] = child;
+            h[count] = childH;
+            count++;
         }
 
-        return null; // No solution found at this threshold
+        // Insertion sort keeps equal children in generation order, like List.sort
+        void sortByH() {
+            for (int i = 1; i < count; i++) {
+                int child = children[i];
+                int childH = h[i];
+                int j = i - 1;
+                while (j >= 0 && h[j] > childH) {
+                    children[j + 1] = children[j];
+                    h[j + 1] = h[j];
+                    j--;
+                }
+                children[j + 1] = child;
+                h[j + 1] = childH;
+            }
+        }
     }
 
     private int calculateHeuristic(RushHourGame state) {
@@ -114,6 +186,17 @@ public class IDAStar extends SearchAlgorithm {
         }
     }
 
+    private int calculateHeuristic(WorkingBoard state) {
+        switch (heuristicType) {
+            case HEURISTIC_MANHATTAN:
+                return state.getHeuristic1();
+            case HEURISTIC_BLOCKING_PIECES:
+                return state.getHeuristic2();
+            default:
+                return state.getHeuristic1();
+        }
+    }
+
     @Override
     public String getAlgorithmName() {
         return "Iterative Deepening A* (IDA*)";
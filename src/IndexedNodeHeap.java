@@ -0,0 +1,159 @@
+package src;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Binary min-heap of search nodes holding at most one node per state. Every node sits under a
+// handle that keeps the packed key of its state, a PackedKeyIntMap gives the handle of a key
+// and position[] the heap slot of a handle, so the node of a state is found in O(1) and
+// replaced by a cheaper one in O(log n) (decrease-key) instead of being searched for and
+// removed from a PriorityQueue. Sifting follows PriorityQueue, so
+// without decrease-key nodes come out in the same order.
+public final class IndexedNodeHeap implements Frontier {
+    private final int words;
+    private Comparator<SearchNode> order;
+    private final PackedKeyIntMap handles;
+    private SearchNode[] heap = new SearchNode[64];
+    private int[] heapHandles = new int[64];  // handle of the node at each heap slot
+    private int size;
+
+    // Per handle: the heap slot, node and packed key of its state; unused handles wait in free[]
+    private int[] position = new int[64];
+    private SearchNode[] nodes = new SearchNode[64];
+    private long[] keys;
+    private int[] free = new int[64];
+    private int freeCount;
+    private int handleCount;
+
+    private final long[] probe;
+
+    public IndexedNodeHeap(int words, Comparator<SearchNode> order) {
+        this.words = words;
+        this.order = order;
+        this.handles = new PackedKeyIntMap(words);
+        this.keys = new long[nodes.length * words];
+        this.probe = new long[words];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public SearchNode get(long[] key) {
+        int handle = handles.get(key, -1);
+        return handle >= 0 ? nodes[handle] : null;
+    }
+
+    @Override
+    public void add(long[] key, SearchNode node) {
+        int handle = newHandle();
+        nodes[handle] = node;
+        System.arraycopy(key, 0, keys, handle * words, words);
+        handles.put(key, handle);
+
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+            heapHandles = Arrays.copyOf(heapHandles, size * 2);
+        }
+        siftUp(size++, handle);
+    }
+
+    @Override
+    public void decreaseKey(long[] key, SearchNode node) {
+        int handle = handles.get(key, -1);
+        if (handle < 0) {
+            throw new IllegalArgumentException("State is not in the heap");
+        }
+        nodes[handle] = node;
+        siftUp(position[handle], handle);
+    }
+
+    @Override
+    public SearchNode poll() {
+        if (size == 0) return null;
+
+        int handle = heapHandles[0];
+        SearchNode first = heap[0];
+        System.arraycopy(keys, handle * words, probe, 0, words);
+        handles.remove(probe);
+        nodes[handle] = null;
+        free[freeCount++] = handle;
+
+        int last = heapHandles[--size];
+        heap[size] = null;
+        if (size > 0) {
+            siftDown(0, last);
+        }
+        return first;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(heap, 0, size, null);
+        Arrays.fill(nodes, 0, handleCount, null);
+        handles.clear();
+        size = 0;
+        freeCount = 0;
+        handleCount = 0;
+    }
+
+    // Empties the heap for a new search in another order, keeping its arrays (see SolverContext)
+    public void reset(Comparator<SearchNode> order) {
+        clear();
+        this.order = order;
+    }
+
+    private int newHandle() {
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+        if (handleCount == nodes.length) {
+            int capacity = handleCount * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            position = Arrays.copyOf(position, capacity);
+            keys = Arrays.copyOf(keys, capacity * words);
+            free = Arrays.copyOf(free, capacity);
+        }
+        return handleCount++;
+    }
+
+    private void siftUp(int k, int handle) {
+        SearchNode node = nodes[handle];
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (order.compare(node, heap[parent]) >= 0) break;
+            place(k, heapHandles[parent]);
+            k = parent;
+        }
+        place(k, handle);
+    }
+
+    private void siftDown(int k, int handle) {
+        SearchNode node = nodes[handle];
+        int half = size >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            int right = child + 1;
+            if (right < size && order.compare(heap[child], heap[right]) > 0) {
+                child = right;
+            }
+            if (order.compare(node, heap[child]) <= 0) break;
+            place(k, heapHandles[child]);
+            k = child;
+        }
+        place(k, handle);
+    }
+
+    private void place(int slot, int handle) {
+        heap[slot] = nodes[handle];
+        heapHandles[slot] = handle;
+        position[handle] = slot;
+    }
+}
@@ -0,0 +1,19 @@
+package src;
+
+// Map from packed state keys to int values: PackedKeyIntMap on the Java heap,
+// OffHeapKeyIntMap in direct buffers outside it.
+public interface KeyIntMap {
+    boolean containsKey(long[] key);
+
+    // Value stored for key, or missing when the key is absent
+    int get(long[] key, int missing);
+
+    void put(long[] key, int value);
+
+    int size();
+
+    void clear();
+
+    // Bytes held by the backing storage
+    long memoryUsage();
+}
@@ -0,0 +1,17 @@
+package src;
+
+// Set of packed state keys (see PieceTable.packKey): PackedKeySet on the Java heap,
+// OffHeapKeySet in direct buffers outside it.
+public interface KeySet {
+    // Returns true when the key was not in the set yet
+    boolean add(long[] key);
+
+    boolean contains(long[] key);
+
+    int size();
+
+    void clear();
+
+    // Bytes held by the backing storage
+    long memoryUsage();
+}
@@ -0,0 +1,60 @@
+package src;
+
+// Lookup tables for the classic 6x6 board, built once when the class is loaded.
+// Every row and column is read as a 6-bit occupancy pattern (bit i = cell i of the lane),
+// and the tables give how far a piece can slide inside that lane without scanning cells.
+public final class LaneTables {
+    public static final int SIZE = 6;
+    public static final int PATTERNS = 1 << SIZE;
+
+    // Empty cells directly before / after a cell of a lane, indexed by pattern * SIZE + cell
+    private static final byte[] FREE_BEFORE = new byte[PATTERNS * SIZE];
+    private static final byte[] FREE_AFTER = new byte[PATTERNS * SIZE];
+
+    // Bits 0, 6, ..., 30 multiplied by this land on bits 30..35 without overlapping
+    private static final long COLUMN_BITS = 0x41041041L;
+    private static final long COLUMN_MAGIC = (1L << 30) | (1L << 25) | (1L << 20) | (1L << 15) | (1L << 10) | (1L << 5);
+
+    static {
+        for (int pattern = 0; pattern < PATTERNS; pattern++) {
+            for (int cell = 0; cell < SIZE; cell++) {
+                int before = 0;
+                for (int i = cell - 1; i >= 0 && (pattern & (1 << i)) == 0; i--) {
+                    before++;
+                }
+                int after = 0;
+                for (int i = cell + 1; i < SIZE && (pattern & (1 << i)) == 0; i++) {
+                    after++;
+                }
+                FREE_BEFORE[pattern * SIZE + cell] = (byte) before;
+                FREE_AFTER[pattern * SIZE + cell] = (byte) after;
+            }
+        }
+    }
+
+    private LaneTables() {
+    }
+
+    public static boolean isClassicBoard(int rows, int cols) {
+        return rows == SIZE && cols == SIZE;
+    }
+
+    public static int rowPattern(long occupied, int row) {
+        return (int) (occupied >>> (row * SIZE)) & (PATTERNS - 1);
+    }
+
+    public static int colPattern(long occupied, int col) {
+        long bits = (occupied >>> col) & COLUMN_BITS;
+        return (int) ((bits * COLUMN_MAGIC) >>> 30) & (PATTERNS - 1);
+    }
+
+    // How many cells a piece whose first cell is 'first' can slide towards cell 0
+    public static int freeBefore(int pattern, int first) {
+        return FREE_BEFORE[pattern * SIZE + first];
+    }
+
+    // How many cells a piece whose last cell is 'last' can slide towards cell SIZE - 1
+    public static int freeAfter(int pattern, int last) {
+        return FREE_AFTER[pattern * SIZE + last];
+    }
+}
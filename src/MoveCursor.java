@@ -0,0 +1,167 @@
+package src;
+
+import java.util.Arrays;
+
+// Streams the moves of one state. A move is a single int (piece index, the offset the piece
+// starts from and the offset it slides to), so walking the successors costs no allocation; the child state is
+// only built when the caller asks for it with child().
+// One cursor can be reset() and reused for many states, immutable ones or a WorkingBoard; a
+// cursor reset on a working board is only valid while the board is back in that position.
+public final class MoveCursor {
+    // Fields of the state the moves start from
+    private PieceTable table;
+    private byte[] offsets;
+    private long occupied;
+    private long[] rowBits;
+    private long key;
+    private long exitLane;
+
+    private int[] moves = new int[32];
+    private int count;
+    private int index;
+
+    // Packed key of the state, filled on the first packKey() after a reset
+    private long[] stateKey;
+    private boolean stateKeyReady;
+
+    // Rank of the state, filled on the first rank() after a reset
+    private long stateRank;
+    private boolean stateRankReady;
+
+    public MoveCursor() {
+    }
+
+    public MoveCursor(RushHourGame state) {
+        reset(state);
+    }
+
+    public MoveCursor reset(RushHourGame state) {
+        state.generateMoves(this);
+        return this;
+    }
+
+    public MoveCursor reset(WorkingBoard board) {
+        board.generateMoves(this);
+        return this;
+    }
+
+    // Called by the states before they generate their moves
+    void start(PieceTable table, byte[] offsets, long occupied, long[] rowBits, long key, long exitLane) {
+        this.table = table;
+        this.offsets = offsets;
+        this.occupied = occupied;
+        this.rowBits = rowBits;
+        this.key = key;
+        this.exitLane = exitLane;
+        this.count = 0;
+        this.index = -1;
+        this.stateKeyReady = false;
+        this.stateRankReady = false;
+        RushHourGame.generateMoves(table, offsets, occupied, rowBits, this);
+    }
+
+    // Called by the move generators of RushHourGame
+    void add(int move) {
+        if (count == moves.length) {
+            moves = Arrays.copyOf(moves, count * 2);
+        }
+        moves[count++] = move;
+    }
+
+    // Advances to the next move, false when there are none left
+    public boolean next() {
+        return ++index < count;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int move() {
+        return moves[index];
+    }
+
+    public int piece() {
+        return piece(moves[index]);
+    }
+
+    // Signed number of cells the piece slides (negative = left/up)
+    public int delta() {
+        return target(moves[index]) - source(moves[index]);
+    }
+
+    // Packed key of the current move's child, see PieceTable.packKey
+    public void packKey(long[] dest) {
+        if (!stateKeyReady) {
+            if (stateKey == null || stateKey.length != table.getKeyWords()) {
+                stateKey = new long[table.getKeyWords()];
+            }
+            table.packKey(offsets, stateKey, 0);
+            stateKeyReady = true;
+        }
+        System.arraycopy(stateKey, 0, dest, 0, stateKey.length);
+        table.setKeyField(dest, 0, piece(), target(moves[index]));
+    }
+
+    // Rank of the current move's child, see PieceTable.rank
+    public long rank() {
+        if (!stateRankReady) {
+            stateRank = table.rank(offsets);
+            stateRankReady = true;
+        }
+        int move = moves[index];
+        return stateRank + table.rankDelta(piece(move), source(move), target(move));
+    }
+
+    public long zobristKey() {
+        int move = moves[index];
+        return key ^ table.zobrist(piece(move), source(move)) ^ table.zobrist(piece(move), target(move));
+    }
+
+    // Same as child().equals(other), without building the child
+    public boolean childEquals(RushHourGame other) {
+        if (other.getPieceTable() != table) return child().equals(other);
+        if (zobristKey() != other.getZobristKey()) return false;
+
+        int p = piece();
+        int target = target(moves[index]);
+        for (int q = 0; q < offsets.length; q++) {
+            if (other.getOffset(q) != (q == p ? target : offsets[q])) return false;
+        }
+        return true;
+    }
+
+    // Goal test of the current move's child, without building it
+    public boolean isGoal() {
+        return RushHourGame.successorIsGoal(table, offsets, exitLane, moves[index]);
+    }
+
+    public RushHourGame child() {
+        return RushHourGame.successor(table, offsets, occupied, rowBits, key, exitLane, moves[index]);
+    }
+
+    public String action() {
+        return table.moveLabel(piece(), target(moves[index]) > source(moves[index]));
+    }
+
+    public static int encode(int piece, int source, int target) {
+        return (piece << 16) | (source << 8) | target;
+    }
+
+    public static int piece(int move) {
+        return move >>> 16;
+    }
+
+    public static int source(int move) {
+        return (move >>> 8) & 0xFF;
+    }
+
+    public static int target(int move) {
+        return move & 0xFF;
+    }
+
+    // The move that takes the piece back to where it started
+    public static int reverse(int move) {
+        return encode(piece(move), target(move), source(move));
+    }
+}
@@ -0,0 +1,104 @@
+package src;
+
+import java.util.Arrays;
+
+// Search nodes as parallel primitive columns instead of SearchNode objects: node i is an int
+// index with the packed key of its state, the index of its parent, g, h and the move that led
+// to it (see MoveCursor). Columns grow in fixed chunks, so adding a node never copies the nodes
+// before it. A node costs 8 bytes per key word plus 16, where a SearchNode also drags along a
+// RushHourGame, its offsets and an action String.
+public final class NodePool {
+    public static final int NONE = -1;
+
+    private static final int CHUNK_BITS = 13;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int words;
+    private long[][] keys = new long[16][];
+    private int[][] parents = new int[16][];
+    private int[][] costs = new int[16][];
+    private int[][] heuristics = new int[16][];
+    private int[][] moves = new int[16][];
+    private int chunks;
+    private int size;
+
+    public NodePool(int words) {
+        this.words = words;
+    }
+
+    // Adds a node and returns its index; the root has parent and move NONE
+    public int add(long[] key, int parent, int g, int h, int move) {
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == chunks) {
+            addChunk();
+        }
+        int i = size & CHUNK_MASK;
+        System.arraycopy(key, 0, keys[chunk], i * words, words);
+        parents[chunk][i] = parent;
+        costs[chunk][i] = g;
+        heuristics[chunk][i] = h;
+        moves[chunk][i] = move;
+        return size++;
+    }
+
+    // Cheaper path to a node that has not been expanded yet: same state and h
+    public void update(int node, int parent, int g, int move) {
+        int chunk = node >>> CHUNK_BITS;
+        int i = node & CHUNK_MASK;
+        parents[chunk][i] = parent;
+        costs[chunk][i] = g;
+        moves[chunk][i] = move;
+    }
+
+    public void getKey(int node, long[] dest) {
+        System.arraycopy(keys[node >>> CHUNK_BITS], (node & CHUNK_MASK) * words, dest, 0, words);
+    }
+
+    public int getParent(int node) {
+        return parents[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public int getG(int node) {
+        return costs[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public int getH(int node) {
+        return heuristics[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public int getMove(int node) {
+        return moves[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Forgets every node; allocated chunks are kept for the next search
+    public void clear() {
+        size = 0;
+    }
+
+    // Approximate bytes held by the allocated chunks
+    public long memoryUsage() {
+        return (long) chunks * CHUNK_SIZE * (8L * words + 16);
+    }
+
+    private void addChunk() {
+        if (chunks == parents.length) {
+            int capacity = chunks * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            costs = Arrays.copyOf(costs, capacity);
+            heuristics = Arrays.copyOf(heuristics, capacity);
+            moves = Arrays.copyOf(moves, capacity);
+        }
+        keys[chunks] = new long[CHUNK_SIZE * words];
+        parents[chunks] = new int[CHUNK_SIZE];
+        costs[chunks] = new int[CHUNK_SIZE];
+        heuristics[chunks] = new int[CHUNK_SIZE];
+        moves[chunks] = new int[CHUNK_SIZE];
+        chunks++;
+    }
+}
@@ -0,0 +1,112 @@
+package src;
+
+import java.util.Arrays;
+
+// Binary min-heap of NodePool indices, ordered by f = g + h (or by h alone for greedy search)
+// and then by h. It compares straight from the pool's columns and tracks the heap slot of every
+// node, so a node whose g was lowered with NodePool.update is sifted up in place. Sifting
+// follows PriorityQueue like IndexedNodeHeap, so both expand nodes in the same order.
+public final class NodePoolHeap {
+    private final NodePool pool;
+    private final boolean withCost;
+    private int[] heap = new int[64];
+    private int[] position = new int[64];   // heap slot of each node, NodePool.NONE when not queued
+    private int size;
+
+    public NodePoolHeap(NodePool pool, boolean withCost) {
+        this.pool = pool;
+        this.withCost = withCost;
+        Arrays.fill(position, NodePool.NONE);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int node) {
+        return node < position.length && position[node] != NodePool.NONE;
+    }
+
+    public void add(int node) {
+        if (node >= position.length) {
+            int oldLength = position.length;
+            position = Arrays.copyOf(position, Math.max(node + 1, oldLength * 2));
+            Arrays.fill(position, oldLength, position.length, NodePool.NONE);
+        }
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        siftUp(size++, node);
+    }
+
+    // Restores the order after the node's g was lowered
+    public void decreaseKey(int node) {
+        siftUp(position[node], node);
+    }
+
+    public int poll() {
+        if (size == 0) return NodePool.NONE;
+
+        int first = heap[0];
+        position[first] = NodePool.NONE;
+        int last = heap[--size];
+        if (size > 0) {
+            siftDown(0, last);
+        }
+        return first;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = NodePool.NONE;
+        }
+        size = 0;
+    }
+
+    private int compare(int a, int b) {
+        int ha = pool.getH(a);
+        int hb = pool.getH(b);
+        if (withCost) {
+            int fa = pool.getG(a) + ha;
+            int fb = pool.getG(b) + hb;
+            if (fa != fb) {
+                return Integer.compare(fa, fb);
+            }
+        }
+        return Integer.compare(ha, hb);
+    }
+
+    private void siftUp(int k, int node) {
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (compare(node, heap[parent]) >= 0) break;
+            place(k, heap[parent]);
+            k = parent;
+        }
+        place(k, node);
+    }
+
+    private void siftDown(int k, int node) {
+        int half = size >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            int right = child + 1;
+            if (right < size && compare(heap[child], heap[right]) > 0) {
+                child = right;
+            }
+            if (compare(node, heap[child]) <= 0) break;
+            place(k, heap[child]);
+            k = child;
+        }
+        place(k, node);
+    }
+
+    private void place(int slot, int node) {
+        heap[slot] = node;
+        position[node] = slot;
+    }
+}
@@ -0,0 +1,23 @@
+package src;
+
+// Thrown by the off-heap key tables when growing would take more direct memory than their
+// budget, counting the old table that is still held while its keys are moved. The solvers
+// let it end the search; any other exception is a bug and is not caught.
+public final class OffHeapBudgetExceededException extends RuntimeException {
+    private final long budgetBytes;
+    private final long neededBytes;
+
+    public OffHeapBudgetExceededException(String table, long budgetBytes, long neededBytes) {
+        super(table + " needs " + neededBytes + " bytes, more than its budget of " + budgetBytes + " bytes");
+        this.budgetBytes = budgetBytes;
+        this.neededBytes = neededBytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public long getNeededBytes() {
+        return neededBytes;
+    }
+}
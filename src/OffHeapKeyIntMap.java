@@ -0,0 +1,111 @@
+package src;
+
+// PackedKeyIntMap kept outside the Java heap, with the same growth and budget rules as
+// OffHeapKeySet. Every slot holds the packed key followed by its int value. There is no
+// removal: the searches only use it for maps that grow until the search ends.
+public final class OffHeapKeyIntMap implements KeyIntMap {
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int words;
+    private final int slotBytes;
+    private final long maxBytes;
+    private final long[] moved;
+    private OffHeapSlots slots;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public OffHeapKeyIntMap(int words, int expectedSize, long maxBytes) {
+        this.words = words;
+        this.slotBytes = 8 * words + 4;
+        this.maxBytes = maxBytes;
+        this.moved = new long[words];
+        allocate(PackedKeySet.tableSizeFor(expectedSize), 0L);
+    }
+
+    // 'heldBytes' is the table being replaced, still allocated while its keys are moved
+    private void allocate(int capacity, long heldBytes) {
+        long needed = heldBytes + OffHeapSlots.bytesFor(capacity, slotBytes);
+        if (needed > maxBytes) {
+            throw new OffHeapBudgetExceededException("Off-heap key map", maxBytes, needed);
+        }
+        slots = new OffHeapSlots(capacity, slotBytes);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int find(long[] key) {
+        int slot = PackedKeySet.hash(key, 0, words) & mask;
+        while (slots.isUsed(slot)) {
+            if (slots.matches(slot, key, words)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean containsKey(long[] key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public int get(long[] key, int missing) {
+        int slot = find(key);
+        return slot >= 0 ? slots.getInt(slot, 8 * words) : missing;
+    }
+
+    @Override
+    public void put(long[] key, int value) {
+        int slot = PackedKeySet.hash(key, 0, words) & mask;
+        while (slots.isUsed(slot)) {
+            if (slots.matches(slot, key, words)) {
+                slots.putInt(slot, 8 * words, value);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        slots.putKey(slot, key, words);
+        slots.putInt(slot, 8 * words, value);
+        slots.setUsed(slot);
+        if (++size > resizeAt) {
+            resize();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        slots.clearUsed();
+        size = 0;
+    }
+
+    @Override
+    public long memoryUsage() {
+        return OffHeapSlots.bytesFor(mask + 1, slotBytes);
+    }
+
+    private void resize() {
+        OffHeapSlots oldSlots = slots;
+        int oldCapacity = mask + 1;
+        allocate(oldCapacity * 2, memoryUsage());
+
+        for (int from = 0; from < oldCapacity; from++) {
+            if (!oldSlots.isUsed(from)) continue;
+            oldSlots.getKey(from, moved, words);
+            int slot = PackedKeySet.hash(moved, 0, words) & mask;
+            while (slots.isUsed(slot)) {
+                slot = (slot + 1) & mask;
+            }
+            slots.putKey(slot, moved, words);
+            slots.putInt(slot, 8 * words, oldSlots.getInt(from, 8 * words));
+            slots.setUsed(slot);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package src;
+
+// PackedKeySet kept outside the Java heap (see OffHeapSlots), for searches whose explored set
+// is big enough for garbage collection to dominate. The table starts with room for
+// 'expectedSize' keys and doubles like PackedKeySet, but never past 'maxBytes', counting the
+// old table held during a resize: a search that would need more fails with an
+// OffHeapBudgetExceededException instead of an OutOfMemoryError.
+public final class OffHeapKeySet implements KeySet {
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int words;
+    private final long maxBytes;
+    private final long[] moved;
+    private OffHeapSlots slots;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public OffHeapKeySet(int words, int expectedSize, long maxBytes) {
+        this.words = words;
+        this.maxBytes = maxBytes;
+        this.moved = new long[words];
+        allocate(PackedKeySet.tableSizeFor(expectedSize), 0L);
+    }
+
+    // 'heldBytes' is the table being replaced, still allocated while its keys are moved
+    private void allocate(int capacity, long heldBytes) {
+        long needed = heldBytes + OffHeapSlots.bytesFor(capacity, 8 * words);
+        if (needed > maxBytes) {
+            throw new OffHeapBudgetExceededException("Off-heap key set", maxBytes, needed);
+        }
+        slots = new OffHeapSlots(capacity, 8 * words);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    @Override
+    public boolean add(long[] key) {
+        int slot = PackedKeySet.hash(key, 0, words) & mask;
+        while (slots.isUsed(slot)) {
+            if (slots.matches(slot, key, words)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        slots.putKey(slot, key, words);
+        slots.setUsed(slot);
+        if (++size > resizeAt) {
+            resize();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(long[] key) {
+        int slot = PackedKeySet.hash(key, 0, words) & mask;
+        while (slots.isUsed(slot)) {
+            if (slots.matches(slot, key, words)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        slots.clearUsed();
+        size = 0;
+    }
+
+    @Override
+    public long memoryUsage() {
+        return OffHeapSlots.bytesFor(mask + 1, 8 * words);
+    }
+
+    private void resize() {
+        OffHeapSlots oldSlots = slots;
+        int oldCapacity = mask + 1;
+        allocate(oldCapacity * 2, memoryUsage());
+
+        for (int from = 0; from < oldCapacity; from++) {
+            if (!oldSlots.isUsed(from)) continue;
+            oldSlots.getKey(from, moved, words);
+            int slot = PackedKeySet.hash(moved, 0, words) & mask;
+            while (slots.isUsed(slot)) {
+                slot = (slot + 1) & mask;
+            }
+            slots.putKey(slot, moved, words);
+            slots.setUsed(slot);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package src;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Slot storage of the off-heap key tables: 'capacity' slots of 'slotBytes' bytes each (a packed
+// key, then the value of a map) plus one used bit per slot, all in direct ByteBuffers so none of
+// it is scanned or moved by the garbage collector. Slots are spread over segments of at most
+// 1 GB, since one ByteBuffer is indexed by int.
+final class OffHeapSlots {
+    private static final int MAX_SEGMENT_BYTES = 1 << 30;
+
+    private final int slotBytes;
+    private final int segmentBits;             // slots per segment = 1 << segmentBits
+    private final int segmentMask;
+    private final ByteBuffer[] segments;
+    private final ByteBuffer usedBits;
+
+    OffHeapSlots(int capacity, int slotBytes) {
+        this.slotBytes = slotBytes;
+        int perSegment = Math.min(capacity, Integer.highestOneBit(MAX_SEGMENT_BYTES / slotBytes));
+        this.segmentBits = Integer.numberOfTrailingZeros(perSegment);
+        this.segmentMask = perSegment - 1;
+        this.segments = new ByteBuffer[capacity >>> segmentBits];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(perSegment * slotBytes).order(ByteOrder.nativeOrder());
+        }
+        this.usedBits = ByteBuffer.allocateDirect(((capacity + 63) >>> 6) << 3).order(ByteOrder.nativeOrder());
+    }
+
+    // Bytes taken by a table of this shape
+    static long bytesFor(int capacity, int slotBytes) {
+        return (long) capacity * slotBytes + (((capacity + 63) >>> 6) << 3);
+    }
+
+    boolean isUsed(int slot) {
+        return (usedBits.getLong((slot >>> 6) << 3) & (1L << slot)) != 0L;
+    }
+
+    void setUsed(int slot) {
+        int index = (slot >>> 6) << 3;
+        usedBits.putLong(index, usedBits.getLong(index) | (1L << slot));
+    }
+
+    void clearUsed() {
+        for (int index = 0; index < usedBits.capacity(); index += 8) {
+            usedBits.putLong(index, 0L);
+        }
+    }
+
+    boolean matches(int slot, long[] key, int words) {
+        ByteBuffer segment = segments[slot >>> segmentBits];
+        int base = (slot & segmentMask) * slotBytes;
+        for (int w = 0; w < words; w++) {
+            if (segment.getLong(base + 8 * w) != key[w]) return false;
+        }
+        return true;
+    }
+
+    void getKey(int slot, long[] dest, int words) {
+        ByteBuffer segment = segments[slot >>> segmentBits];
+        int base = (slot & segmentMask) * slotBytes;
+        for (int w = 0; w < words; w++) {
+            dest[w] = segment.getLong(base + 8 * w);
+        }
+    }
+
+    void putKey(int slot, long[] key, int words) {
+        ByteBuffer segment = segments[slot >>> segmentBits];
+        int base = (slot & segmentMask) * slotBytes;
+        for (int w = 0; w < words; w++) {
+            segment.putLong(base + 8 * w, key[w]);
+        }
+    }
+
+    int getInt(int slot, int offset) {
+        return segments[slot >>> segmentBits].getInt((slot & segmentMask) * slotBytes + offset);
+    }
+
+    void putInt(int slot, int offset, int value) {
+        segments[slot >>> segmentBits].putInt((slot & segmentMask) * slotBytes + offset, value);
+    }
+}
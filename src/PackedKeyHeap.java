@@ -0,0 +1,109 @@
+package src;
+
+import java.util.Arrays;
+
+// Binary min-heap of packed state keys with their g and h, ordered by f = g + h and then by h.
+// Entries are stored inline in primitive arrays and there is no index, so a state can be queued
+// more than once; searches that lower a g push a new entry and skip the stale one when it comes
+// out (lazy deletion).
+public final class PackedKeyHeap {
+    private final int words;
+    private long[] keys;
+    private int[] costs = new int[64];
+    private int[] heuristics = new int[64];
+    private int size;
+
+    private final long[] held;
+
+    public PackedKeyHeap(int words) {
+        this.words = words;
+        this.keys = new long[costs.length * words];
+        this.held = new long[words];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(long[] key, int g, int h) {
+        if (size == costs.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity * words);
+            costs = Arrays.copyOf(costs, capacity);
+            heuristics = Arrays.copyOf(heuristics, capacity);
+        }
+        System.arraycopy(key, 0, held, 0, words);
+        siftUp(size++, g, h);
+    }
+
+    // Removes the first entry, copies its key into dest and returns its g (-1 when empty)
+    public int poll(long[] dest) {
+        if (size == 0) return -1;
+
+        System.arraycopy(keys, 0, dest, 0, words);
+        int g = costs[0];
+        if (--size > 0) {
+            System.arraycopy(keys, size * words, held, 0, words);
+            siftDown(0, costs[size], heuristics[size]);
+        }
+        return g;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // Bytes held by the backing arrays
+    public long memoryUsage() {
+        return 8L * keys.length + 4L * costs.length + 4L * heuristics.length;
+    }
+
+    private static int compare(int g1, int h1, int g2, int h2) {
+        if (g1 + h1 != g2 + h2) {
+            return Integer.compare(g1 + h1, g2 + h2);
+        }
+        return Integer.compare(h1, h2);
+    }
+
+    // The entry being placed waits in held[] while the others move
+    private void siftUp(int k, int g, int h) {
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (compare(g, h, costs[parent], heuristics[parent]) >= 0) break;
+            move(parent, k);
+            k = parent;
+        }
+        place(k, g, h);
+    }
+
+    private void siftDown(int k, int g, int h) {
+        int half = size >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            int right = child + 1;
+            if (right < size && compare(costs[child], heuristics[child], costs[right], heuristics[right]) > 0) {
+                child = right;
+            }
+            if (compare(g, h, costs[child], heuristics[child]) <= 0) break;
+            move(child, k);
+            k = child;
+        }
+        place(k, g, h);
+    }
+
+    private void move(int from, int to) {
+        System.arraycopy(keys, from * words, keys, to * words, words);
+        costs[to] = costs[from];
+        heuristics[to] = heuristics[from];
+    }
+
+    private void place(int slot, int g, int h) {
+        System.arraycopy(held, 0, keys, slot * words, words);
+        costs[slot] = g;
+        heuristics[slot] = h;
+    }
+}
@@ -0,0 +1,135 @@
+package src;
+
+import java.util.Arrays;
+
+// Map from packed state keys to int values (e.g. the best g found so far), same layout as
+// PackedKeySet plus a parallel int[]. Removal shifts the following probe run back instead of
+// leaving tombstones, so lookups never slow down after many removals.
+public final class PackedKeyIntMap implements KeyIntMap {
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int words;
+    private long[] keys;
+    private int[] values;
+    private long[] used;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public PackedKeyIntMap(int words) {
+        this(words, 1 << 10);
+    }
+
+    public PackedKeyIntMap(int words, int expectedSize) {
+        this.words = words;
+        allocate(PackedKeySet.tableSizeFor(expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity * words];
+        values = new int[capacity];
+        used = new long[(capacity + 63) >>> 6];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int find(long[] key) {
+        int slot = PackedKeySet.hash(key, 0, words) & mask;
+        while (PackedKeySet.isUsed(used, slot)) {
+            if (PackedKeySet.matches(keys, slot * words, key, words)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean containsKey(long[] key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public int get(long[] key, int missing) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : missing;
+    }
+
+    @Override
+    public void put(long[] key, int value) {
+        int slot = PackedKeySet.hash(key, 0, words) & mask;
+        while (PackedKeySet.isUsed(used, slot)) {
+            if (PackedKeySet.matches(keys, slot * words, key, words)) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        System.arraycopy(key, 0, keys, slot * words, words);
+        values[slot] = value;
+        used[slot >>> 6] |= 1L << slot;
+        if (++size > resizeAt) {
+            resize();
+        }
+    }
+
+    // Returns true when the key was present
+    public boolean remove(long[] key) {
+        int hole = find(key);
+        if (hole < 0) return false;
+
+        // Move back every entry of the run that would no longer be reachable past the hole
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (!PackedKeySet.isUsed(used, slot)) break;
+            int home = PackedKeySet.hash(keys, slot * words, words) & mask;
+            boolean reachable = hole <= slot ? (home > hole && home <= slot) : (home > hole || home <= slot);
+            if (!reachable) {
+                System.arraycopy(keys, slot * words, keys, hole * words, words);
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+
+        used[hole >>> 6] &= ~(1L << hole);
+        size--;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(used, 0L);
+        size = 0;
+    }
+
+    @Override
+    public long memoryUsage() {
+        return 8L * keys.length + 4L * values.length + 8L * used.length;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        long[] oldUsed = used;
+        int oldCapacity = mask + 1;
+        allocate(oldCapacity * 2);
+
+        for (int from = 0; from < oldCapacity; from++) {
+            if (!PackedKeySet.isUsed(oldUsed, from)) continue;
+            int slot = PackedKeySet.hash(oldKeys, from * words, words) & mask;
+            while (PackedKeySet.isUsed(used, slot)) {
+                slot = (slot + 1) & mask;
+            }
+            System.arraycopy(oldKeys, from * words, keys, slot * words, words);
+            values[slot] = oldValues[from];
+            used[slot >>> 6] |= 1L << slot;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package src;
+
+import java.util.Arrays;
+
+// Hash set of packed state keys (see PieceTable.packKey), each key 'words' longs long.
+// Open addressing with linear probing over one flat long[] so nothing is boxed and no
+// state object is kept alive by the set.
+public final class PackedKeySet implements KeySet {
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int words;
+    private long[] keys;       // slot i holds keys[i * words .. i * words + words)
+    private long[] used;       // one bit per slot
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public PackedKeySet(int words) {
+        this(words, 1 << 10);
+    }
+
+    public PackedKeySet(int words, int expectedSize) {
+        this.words = words;
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity * words];
+        used = new long[(capacity + 63) >>> 6];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    @Override
+    public boolean add(long[] key) {
+        int slot = hash(key, 0, words) & mask;
+        while (isUsed(used, slot)) {
+            if (matches(keys, slot * words, key, words)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        System.arraycopy(key, 0, keys, slot * words, words);
+        used[slot >>> 6] |= 1L << slot;
+        if (++size > resizeAt) {
+            resize();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(long[] key) {
+        int slot = hash(key, 0, words) & mask;
+        while (isUsed(used, slot)) {
+            if (matches(keys, slot * words, key, words)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(used, 0L);
+        size = 0;
+    }
+
+    @Override
+    public long memoryUsage() {
+        return 8L * keys.length + 8L * used.length;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldUsed = used;
+        int oldCapacity = mask + 1;
+        allocate(oldCapacity * 2);
+
+        for (int from = 0; from < oldCapacity; from++) {
+            if (!isUsed(oldUsed, from)) continue;
+            int slot = hash(oldKeys, from * words, words) & mask;
+            while (isUsed(used, slot)) {
+                slot = (slot + 1) & mask;
+            }
+            System.arraycopy(oldKeys, from * words, keys, slot * words, words);
+            used[slot >>> 6] |= 1L << slot;
+        }
+    }
+
+    static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static boolean isUsed(long[] used, int slot) {
+        return (used[slot >>> 6] & (1L << slot)) != 0L;
+    }
+
+    static boolean matches(long[] table, int pos, long[] key, int words) {
+        for (int w = 0; w < words; w++) {
+            if (table[pos + w] != key[w]) return false;
+        }
+        return true;
+    }
+
+    // Packed keys are dense small numbers, so mix them before taking the low bits
+    static int hash(long[] key, int pos, int words) {
+        long h = 0L;
+        for (int w = 0; w < words; w++) {
+            h = (h ^ key[pos + w]) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+        }
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
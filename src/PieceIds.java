@@ -0,0 +1,51 @@
+package src;
+
+// Integer piece IDs. A piece read from a character board keeps its letter as ID (the char code),
+// vehicles of a token board are numbered and get IDs above the char range, so both kinds can
+// share one map and can never collide. The empty cell and the exit keep their characters.
+public final class PieceIds {
+    public static final int EMPTY = '.';
+    public static final int PRIMARY = 'P';
+    public static final int EXIT = 'K';
+
+    private static final int NUMBERED_BASE = 1 << 16;
+
+    private PieceIds() {
+    }
+
+    public static int ofChar(char c) {
+        return c;
+    }
+
+    // Vehicle 'number' of a token board (1, 2, ...)
+    public static int ofNumber(int number) {
+        return NUMBERED_BASE + number;
+    }
+
+    public static boolean isNumbered(int id) {
+        return id >= NUMBERED_BASE;
+    }
+
+    // Text of the piece in boards and actions: its letter, or its number on token boards
+    public static String label(int id) {
+        return isNumbered(id) ? Integer.toString(id - NUMBERED_BASE) : String.valueOf((char) id);
+    }
+
+    // Single character for char boards; numbered vehicles all show as '#'
+    public static char displayChar(int id) {
+        return isNumbered(id) ? '#' : (char) id;
+    }
+
+    // Reads one cell of a token board: ".", "P", "K" or a vehicle number
+    public static int parseToken(String token) {
+        if (token.equals(".")) return EMPTY;
+        if (token.equals("P")) return PRIMARY;
+        if (token.equals("K")) return EXIT;
+
+        int number = Integer.parseInt(token);
+        if (number <= 0 || number > Integer.MAX_VALUE - NUMBERED_BASE) {
+            throw new NumberFormatException("Invalid vehicle number: " + token);
+        }
+        return ofNumber(number);
+    }
+}
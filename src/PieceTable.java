@@ -0,0 +1,548 @@
+package src;
+
+import java.util.*;
+
+// Static data of one puzzle, built once when the puzzle is loaded and shared by every state.
+// A piece never changes orientation, length or lane, so a search state only has to store
+// how far along its lane each piece is (its offset), indexed by piece number.
+//
+// The table works in a normalized orientation: the board is transposed and/or mirrored so
+// that the primary piece is horizontal with the exit past the right border. Every row, column
+// and direction below is in that orientation; display* methods map back to the puzzle as given.
+public final class PieceTable {
+    private final int rows, cols;
+    private final int exitRow, exitCol;
+    private final int displayRows, displayCols;
+    private final int displayExitRow, displayExitCol;
+    private final boolean transposed;     // normalized (row, col) = given (col, row)
+    private final boolean mirrored;       // then columns reversed
+    private final int count;
+    private final int[] ids;              // see PieceIds
+    private final boolean numbered;       // some piece has a numbered ID (token board)
+    private final boolean[] horizontal;
+    private final byte[] lengths;
+    private final byte[] lanes;           // fixed row (horizontal) or column (vertical)
+    private final byte[] initialOffsets;
+    private final int primary;
+
+    // Largest board side: a normalized row must fit in one long (see rowOccupancy)
+    public static final int MAX_BOARD_SIZE = 64;
+
+    // Boards up to 64 cells: masks[p][offset] is the bitboard of piece p at that offset.
+    // Larger boards use one long per row instead, see rowOccupancy
+    private final boolean bitboard;
+    private final long[][] masks;
+
+    // Exit lane = the row of the primary piece (bit = column). exitLaneMasks[p][offset] holds
+    // the cells of that row covered by piece p at that offset, exitAhead[offset] the cells
+    // between the primary piece at that offset and the exit
+    private final boolean exitAligned;
+    private final long[][] exitLaneMasks;
+    private final long[] exitAhead;
+
+    // Horizontal pieces of every row and vertical pieces of every column, in lane order.
+    // Pieces never pass each other inside a lane, so the order is the same in every state;
+    // pieceAt only has to look at the two lanes through a cell
+    private final int[][] rowPieces;
+    private final int[][] colPieces;
+
+    // Zobrist keys: a state's key is the XOR of zobrist[p][offset] over all pieces
+    private static final long ZOBRIST_SEED = 0x2545F4914F6CDD1DL;
+    private final long[][] zobrist;
+
+    // Packed keys: every offset gets just enough bits for its lane, pieces never straddle
+    // two words, so a classic 6x6 state fits in a single long.
+    // Fields are laid out in geometry order (see geometryOrder), so keys only describe where
+    // pieces of each shape are and not which letter they carry
+    private final int[] geometryOrder;
+    private final short[] keyWord;
+    private final byte[] keyShift;
+    private final long[] keyMask;
+    private final int keyWords;
+
+    // Ranks: offsets read as one mixed-radix number (digit p in base "positions of piece p"),
+    // also in geometry order. Every configuration, legal or not, gets its own index below
+    // rankSpace, so a visited set can be a plain bitmap. rankSpace is -1 when the product does
+    // not fit under MAX_RANK_SPACE; the bitmaps are only used up to MAX_DENSE_RANK_SPACE
+    public static final long MAX_RANK_SPACE = 1L << 40;
+    public static final long MAX_DENSE_RANK_SPACE = 1L << 24;     // 2 MB of bits, 4 MB of depths
+    private final long[] rankWeight;
+    private final long rankSpace;
+
+    private PieceTable(int rows, int cols, int exitRow, int exitCol, Map<Integer, List<int[]>> pieces) {
+        this.displayRows = rows;
+        this.displayCols = cols;
+        this.displayExitRow = exitRow;
+        this.displayExitCol = exitCol;
+
+        // Left exit: mirror. Bottom exit: transpose. Top exit: both.
+        // An exit off the primary lane has no solution, so it is left as given
+        List<int[]> primaryCells = pieces.get(PieceIds.PRIMARY);
+        boolean turn = false, flip = false;
+        if (primaryCells != null && primaryCells.size() > 1) {
+            boolean primaryHorizontal = primaryCells.get(0)[0] == primaryCells.get(1)[0];
+            if (primaryHorizontal && exitRow == primaryCells.get(0)[0]) {
+                flip = exitCol < 0;
+            } else if (!primaryHorizontal && exitCol == primaryCells.get(0)[1]) {
+                turn = true;
+                flip = exitRow < 0;
+            }
+        }
+        this.transposed = turn;
+        this.mirrored = flip;
+        this.rows = turn ? cols : rows;
+        this.cols = turn ? rows : cols;
+        this.exitRow = normalizedRow(exitRow, exitCol);
+        this.exitCol = normalizedCol(exitRow, exitCol);
+        this.count = pieces.size();
+        this.ids = new int[count];
+        this.horizontal = new boolean[count];
+        this.lengths = new byte[count];
+        this.lanes = new byte[count];
+        this.initialOffsets = new byte[count];
+        this.bitboard = rows * cols <= 64;
+        this.masks = bitboard ? new long[count][] : null;
+        this.zobrist = new long[count][];
+        this.keyWord = new short[count];
+        this.keyShift = new byte[count];
+        this.keyMask = new long[count];
+
+        // Fixed seed so keys (and search order in hashed sets) are the same on every run
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+
+        // Keep the iteration order of the pieces map so successors come out in the same order
+        int p = 0;
+        int primaryIndex = -1;
+        boolean anyNumbered = false;
+        for (Map.Entry<Integer, List<int[]>> entry : pieces.entrySet()) {
+            List<int[]> positions = entry.getValue();
+            int minRow = Integer.MAX_VALUE, minCol = Integer.MAX_VALUE;
+            for (int[] pos : positions) {
+                minRow = Math.min(minRow, normalizedRow(pos[0], pos[1]));
+                minCol = Math.min(minCol, normalizedCol(pos[0], pos[1]));
+            }
+
+            boolean isHorizontal = positions.size() > 1
+                    && normalizedRow(positions.get(0)[0], positions.get(0)[1])
+                    == normalizedRow(positions.get(1)[0], positions.get(1)[1]);
+            ids[p] = entry.getKey();
+            horizontal[p] = isHorizontal;
+            lengths[p] = (byte) positions.size();
+            lanes[p] = (byte) (isHorizontal ? minRow : minCol);
+            initialOffsets[p] = (byte) (isHorizontal ? minCol : minRow);
+            if (entry.getKey() == PieceIds.PRIMARY) {
+                primaryIndex = p;
+            }
+            anyNumbered |= PieceIds.isNumbered(entry.getKey());
+
+            int positionsInLane = laneLength(p) - lengths[p] + 1;
+            zobrist[p] = new long[positionsInLane];
+            for (int offset = 0; offset < positionsInLane; offset++) {
+                zobrist[p][offset] = random.nextLong();
+            }
+
+            if (bitboard) {
+                masks[p] = new long[positionsInLane];
+                for (int offset = 0; offset < positionsInLane; offset++) {
+                    long mask = 0L;
+                    for (int i = 0; i < lengths[p]; i++) {
+                        mask |= 1L << cellIndex(p, offset + i);
+                    }
+                    masks[p][offset] = mask;
+                }
+            }
+            p++;
+        }
+        this.primary = primaryIndex;
+        this.numbered = anyNumbered;
+        this.geometryOrder = buildGeometryOrder();
+
+        int word = 0, shift = 0;
+        for (int q : geometryOrder) {
+            int bits = 32 - Integer.numberOfLeadingZeros(laneLength(q) - lengths[q]);
+            if (shift + bits > 64) {
+                word++;
+                shift = 0;
+            }
+            keyWord[q] = (short) word;
+            keyShift[q] = (byte) shift;
+            keyMask[q] = (1L << bits) - 1;
+            shift += bits;
+        }
+        this.keyWords = word + 1;
+
+        this.rankWeight = new long[count];
+        long space = 1L;
+        for (int i = count - 1; i >= 0 && space > 0; i--) {
+            int q = geometryOrder[i];
+            long positions = laneLength(q) - lengths[q] + 1;
+            rankWeight[q] = space;
+            space = space <= MAX_RANK_SPACE / positions ? space * positions : -1L;
+        }
+        this.rankSpace = space;
+        this.exitAligned = primary >= 0 && horizontal[primary] && this.exitRow == lanes[primary] && this.exitCol == this.cols;
+        this.exitLaneMasks = new long[count][];
+        for (int q = 0; q < count; q++) {
+            exitLaneMasks[q] = buildExitLaneMasks(q);
+        }
+        this.exitAhead = exitAligned ? buildExitAhead() : null;
+        this.rowPieces = buildLanePieces(true);
+        this.colPieces = buildLanePieces(false);
+    }
+
+    // Given (row, col) to normalized; also used for the exit, which lies outside the board
+    private int normalizedRow(int row, int col) {
+        return transposed ? col : row;
+    }
+
+    private int normalizedCol(int row, int col) {
+        int c = transposed ? row : col;
+        return mirrored ? cols - 1 - c : c;
+    }
+
+    // Orders pieces by geometry only: primary piece first, then horizontal before vertical,
+    // by lane and by position in the lane. Pieces can neither leave their lane nor pass
+    // each other inside it, so this order is the same in every reachable state
+    private int[] buildGeometryOrder() {
+        Integer[] order = new Integer[count];
+        for (int p = 0; p < count; p++) {
+            order[p] = p;
+        }
+        Arrays.sort(order, (a, b) -> {
+            if ((a == primary) != (b == primary)) return a == primary ? -1 : 1;
+            if (horizontal[a] != horizontal[b]) return horizontal[a] ? -1 : 1;
+            if (lanes[a] != lanes[b]) return Integer.compare(lanes[a], lanes[b]);
+            return Integer.compare(initialOffsets[a], initialOffsets[b]);
+        });
+
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    private long[] buildExitLaneMasks(int p) {
+        long[] laneMasks = new long[laneLength(p) - lengths[p] + 1];
+        if (!exitAligned) return laneMasks;
+
+        for (int offset = 0; offset < laneMasks.length; offset++) {
+            for (int i = 0; i < lengths[p]; i++) {
+                if (rowAt(p, offset + i) == exitRow) {
+                    laneMasks[offset] |= 1L << colAt(p, offset + i);
+                }
+            }
+        }
+        return laneMasks;
+    }
+
+    private int[][] buildLanePieces(boolean rowLanes) {
+        List<List<Integer>> lanePieces = new ArrayList<>();
+        for (int lane = 0; lane < (rowLanes ? rows : cols); lane++) {
+            lanePieces.add(new ArrayList<>());
+        }
+        for (int p = 0; p < count; p++) {
+            if (horizontal[p] == rowLanes) {
+                lanePieces.get(lanes[p]).add(p);
+            }
+        }
+
+        int[][] result = new int[lanePieces.size()][];
+        for (int lane = 0; lane < result.length; lane++) {
+            List<Integer> pieces = lanePieces.get(lane);
+            pieces.sort(Comparator.comparingInt(q -> initialOffsets[q]));
+            result[lane] = pieces.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return result;
+    }
+
+    private long[] buildExitAhead() {
+        long[] ahead = new long[cols - lengths[primary] + 1];
+        for (int offset = 0; offset < ahead.length; offset++) {
+            for (int col = offset + lengths[primary]; col < cols; col++) {
+                ahead[offset] |= 1L << col;
+            }
+        }
+        return ahead;
+    }
+
+    // Builds the table of a puzzle given as cells per piece ID (see PieceIds), as read from the
+    // file. Piece numbers follow the iteration order of the map
+    public static PieceTable build(int rows, int cols, int exitRow, int exitCol, Map<Integer, List<int[]>> pieces) {
+        return new PieceTable(rows, cols, exitRow, exitCol, pieces);
+    }
+
+    // Normalized board size and exit
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getExitRow() { return exitRow; }
+    public int getExitCol() { return exitCol; }
+    public int getPieceCount() { return count; }
+    public int getPrimaryIndex() { return primary; }
+    public boolean isBitboard() { return bitboard; }
+    public boolean isTransposed() { return transposed; }
+    public boolean isMirrored() { return mirrored; }
+
+    // Normalized (row, col) back to the orientation the puzzle was given in
+    public int displayRow(int row, int col) {
+        return transposed ? (mirrored ? cols - 1 - col : col) : row;
+    }
+
+    public int displayCol(int row, int col) {
+        return transposed ? row : (mirrored ? cols - 1 - col : col);
+    }
+
+    public int displayRowAt(int p, int along) {
+        return displayRow(rowAt(p, along), colAt(p, along));
+    }
+
+    public int displayColAt(int p, int along) {
+        return displayCol(rowAt(p, along), colAt(p, along));
+    }
+
+    public int getDisplayRows() { return displayRows; }
+    public int getDisplayCols() { return displayCols; }
+    public int getDisplayExitRow() { return displayExitRow; }
+    public int getDisplayExitCol() { return displayExitCol; }
+
+    // Action label of piece p sliding towards higher (forward) or lower offsets, as seen on
+    // the given board: "kanan"/"kiri" for horizontal pieces there, "bawah"/"atas" for vertical
+    public String moveLabel(int p, boolean forward) {
+        boolean shownHorizontal = horizontal[p] != transposed;
+        boolean shownForward = forward != (mirrored && horizontal[p]);
+        if (shownHorizontal) {
+            return getLabel(p) + (shownForward ? "-kanan" : "-kiri");
+        }
+        return getLabel(p) + (shownForward ? "-bawah" : "-atas");
+    }
+
+    public int getId(int p) { return ids[p]; }
+    public String getLabel(int p) { return PieceIds.label(ids[p]); }
+
+    // True for token boards, whose pieces do not all have a letter
+    public boolean hasNumberedPieces() { return numbered; }
+    public boolean isHorizontal(int p) { return horizontal[p]; }
+    public int getLength(int p) { return lengths[p]; }
+    public int getLane(int p) { return lanes[p]; }
+
+    // Number of cells in the lane of piece p
+    public int laneLength(int p) {
+        return horizontal[p] ? cols : rows;
+    }
+
+    public byte[] initialOffsets() {
+        return initialOffsets.clone();
+    }
+
+    // Row / column of the cell at position 'along' in the lane of piece p
+    public int rowAt(int p, int along) {
+        return horizontal[p] ? lanes[p] : along;
+    }
+
+    public int colAt(int p, int along) {
+        return horizontal[p] ? along : lanes[p];
+    }
+
+    // Bitboard index (row * cols + col) of the cell at position 'along' in the lane of piece p
+    public int cellIndex(int p, int along) {
+        return rowAt(p, along) * cols + colAt(p, along);
+    }
+
+    public long mask(int p, int offset) {
+        return masks[p][offset];
+    }
+
+    // Occupied cells of every normalized row as one long each (bit = column), for boards that
+    // do not fit in a single bitboard
+    public long[] rowOccupancy(byte[] offsets) {
+        long[] rowBits = new long[rows];
+        for (int p = 0; p < count; p++) {
+            if (offsets[p] >= 0) {
+                slideRows(rowBits, p, -1, offsets[p]);
+            }
+        }
+        return rowBits;
+    }
+
+    // Moves piece p from one offset to another in rowBits (from = -1 only places it). Only the
+    // row of a horizontal piece, or the rows a vertical piece leaves and enters, are touched
+    public void slideRows(long[] rowBits, int p, int from, int to) {
+        int length = lengths[p];
+        if (horizontal[p]) {
+            long cells = -1L >>> (64 - length);
+            long row = rowBits[lanes[p]];
+            if (from >= 0) {
+                row &= ~(cells << from);
+            }
+            rowBits[lanes[p]] = row | (cells << to);
+            return;
+        }
+
+        long bit = 1L << lanes[p];
+        if (from >= 0) {
+            for (int row = from; row < from + length; row++) {
+                rowBits[row] &= ~bit;
+            }
+        }
+        for (int row = to; row < to + length; row++) {
+            rowBits[row] |= bit;
+        }
+    }
+
+    public long zobrist(int p, int offset) {
+        return zobrist[p][offset];
+    }
+
+    // Zobrist key of a full offsets array (pieces with a negative offset are off the board)
+    public long zobristKey(byte[] offsets) {
+        long key = 0L;
+        for (int p = 0; p < count; p++) {
+            if (offsets[p] >= 0) {
+                key ^= zobrist[p][offsets[p]];
+            }
+        }
+        return key;
+    }
+
+    // Piece index at position i of the geometry order
+    public int geometryPiece(int i) {
+        return geometryOrder[i];
+    }
+
+    // True when both puzzles have the same board, exit and piece shapes in the same lanes,
+    // whatever letters the pieces carry. Packed keys of such puzzles can be compared directly
+    public boolean isSameGeometry(PieceTable other) {
+        if (other == this) return true;
+        if (rows != other.rows || cols != other.cols || count != other.count) return false;
+        if (transposed != other.transposed || mirrored != other.mirrored) return false;
+        if (exitRow != other.exitRow || exitCol != other.exitCol) return false;
+
+        for (int i = 0; i < count; i++) {
+            int p = geometryOrder[i];
+            int q = other.geometryOrder[i];
+            if ((p == primary) != (q == other.primary)) return false;
+            if (horizontal[p] != other.horizontal[q]) return false;
+            if (lanes[p] != other.lanes[q] || lengths[p] != other.lengths[q]) return false;
+        }
+        return true;
+    }
+
+    // Number of longs in a packed key
+    public int getKeyWords() {
+        return keyWords;
+    }
+
+    // Writes the exact packed key of an offsets array into dest[pos .. pos + keyWords).
+    // Only meant for states on the board (removed pieces would alias offset 'mask')
+    public void packKey(byte[] offsets, long[] dest, int pos) {
+        for (int w = 0; w < keyWords; w++) {
+            dest[pos + w] = 0L;
+        }
+        for (int p = 0; p < count; p++) {
+            dest[pos + keyWord[p]] |= (offsets[p] & keyMask[p]) << keyShift[p];
+        }
+    }
+
+    // Inverse of packKey: writes the offset of every piece into dest
+    public void unpackKey(long[] src, int pos, byte[] dest) {
+        for (int p = 0; p < count; p++) {
+            dest[p] = (byte) ((src[pos + keyWord[p]] >>> keyShift[p]) & keyMask[p]);
+        }
+    }
+
+    // Replaces the field of piece p in a packed key written by packKey
+    public void setKeyField(long[] dest, int pos, int p, int offset) {
+        long field = keyMask[p] << keyShift[p];
+        dest[pos + keyWord[p]] = (dest[pos + keyWord[p]] & ~field) | ((offset & keyMask[p]) << keyShift[p]);
+    }
+
+    // True when every state of the puzzle has a rank, see rankSpace
+    public boolean isRankable() {
+        return rankSpace > 0;
+    }
+
+    // True when the rank space is small enough for the rank bitmaps to pay off: the number
+    // of reachable states is unrelated to it, so a search reaching a few thousand states of a
+    // large space would still touch a page per state. Up to MAX_DENSE_RANK_SPACE ranks the
+    // whole bitmap is a few MB; larger spaces use packed-key sets instead
+    public boolean hasDenseRanks() {
+        return rankSpace > 0 && rankSpace <= MAX_DENSE_RANK_SPACE;
+    }
+
+    // Number of distinct ranks (legal and overlapping configurations alike)
+    public long getRankSpace() {
+        return rankSpace;
+    }
+
+    // Only for rankable tables and states with every piece on the board
+    public long rank(byte[] offsets) {
+        long rank = 0L;
+        for (int p = 0; p < count; p++) {
+            rank += offsets[p] * rankWeight[p];
+        }
+        return rank;
+    }
+
+    // Rank change when piece p slides from one offset to another
+    public long rankDelta(int p, int from, int to) {
+        return (to - from) * rankWeight[p];
+    }
+
+    // Inverse of rank: writes the offsets of every piece into dest
+    public void unrank(long rank, byte[] dest) {
+        for (int i = 0; i < count; i++) {
+            int q = geometryOrder[i];
+            dest[q] = (byte) (rank / rankWeight[q]);
+            rank %= rankWeight[q];
+        }
+    }
+
+    // True when the exit is past the right border of the primary row, which after
+    // normalization holds for every puzzle that can be solved
+    public boolean isExitInPrimaryLane() {
+        return exitAligned;
+    }
+
+    public long exitLaneMask(int p, int offset) {
+        return exitLaneMasks[p][offset];
+    }
+
+    // Bitboard of a whole offsets array (only for bitboard tables)
+    public long occupancy(byte[] offsets) {
+        long occupied = 0L;
+        for (int p = 0; p < count; p++) {
+            if (offsets[p] >= 0) {
+                occupied |= masks[p][offsets[p]];
+            }
+        }
+        return occupied;
+    }
+
+    // Exit lane of a whole offsets array (pieces with a negative offset are off the board)
+    public long exitLane(byte[] offsets) {
+        long lane = 0L;
+        for (int p = 0; p < count; p++) {
+            if (offsets[p] >= 0) {
+                lane |= exitLaneMasks[p][offsets[p]];
+            }
+        }
+        return lane;
+    }
+
+    public long exitAhead(int primaryOffset) {
+        return exitAhead[primaryOffset];
+    }
+
+    // Piece covering a normalized cell in the given state, -1 when the cell is free
+    public int pieceAt(byte[] offsets, int row, int col) {
+        for (int q : rowPieces[row]) {
+            if (offsets[q] > col) break;
+            if (offsets[q] >= 0 && col < offsets[q] + lengths[q]) return q;
+        }
+        for (int q : colPieces[col]) {
+            if (offsets[q] > row) break;
+            if (offsets[q] >= 0 && row < offsets[q] + lengths[q]) return q;
+        }
+        return -1;
+    }
+}
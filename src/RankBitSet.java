@@ -0,0 +1,74 @@
+package src;
+
+import java.util.Arrays;
+
+// Visited set over state ranks (see PieceTable.rank): one bit per possible rank. The bitmap
+// is split in pages that are only allocated once a rank inside them is added, so a search that
+// reaches a small corner of a large rank space only pays for the pages it touches.
+public final class RankBitSet {
+    private static final int PAGE_BITS = 20;               // 2^20 ranks = 128 KB per page
+    private static final int PAGE_WORDS = 1 << (PAGE_BITS - 6);
+
+    private final long capacity;
+    private final long[][] pages;
+    private long size;
+    private int pagesAllocated;
+
+    public RankBitSet(long capacity) {
+        if (capacity <= 0 || capacity > PieceTable.MAX_RANK_SPACE) {
+            throw new IllegalArgumentException("Rank space out of range: " + capacity);
+        }
+        this.capacity = capacity;
+        this.pages = new long[(int) ((capacity + (1L << PAGE_BITS) - 1) >>> PAGE_BITS)][];
+    }
+
+    // Visited set for the states of one puzzle, or null when its ranks are not dense
+    public static RankBitSet forTable(PieceTable table) {
+        return table.hasDenseRanks() ? new RankBitSet(table.getRankSpace()) : null;
+    }
+
+    // Returns true when the rank was not in the set yet
+    public boolean add(long rank) {
+        int page = (int) (rank >>> PAGE_BITS);
+        long[] words = pages[page];
+        if (words == null) {
+            words = new long[PAGE_WORDS];
+            pages[page] = words;
+            pagesAllocated++;
+        }
+        int word = (int) (rank >>> 6) & (PAGE_WORDS - 1);
+        long bit = 1L << rank;
+        if ((words[word] & bit) != 0L) return false;
+
+        words[word] |= bit;
+        size++;
+        return true;
+    }
+
+    public boolean contains(long rank) {
+        long[] words = pages[(int) (rank >>> PAGE_BITS)];
+        return words != null && (words[(int) (rank >>> 6) & (PAGE_WORDS - 1)] & (1L << rank)) != 0L;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        for (long[] words : pages) {
+            if (words != null) {
+                Arrays.fill(words, 0L);
+            }
+        }
+        size = 0;
+    }
+
+    // Bytes held by the allocated pages and the page index
+    public long memoryUsage() {
+        return 8L * PAGE_WORDS * pagesAllocated + 8L * pages.length;
+    }
+}
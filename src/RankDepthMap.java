@@ -0,0 +1,78 @@
+package src;
+
+import java.util.Arrays;
+
+// Breadth-first depths over state ranks (see PieceTable.rank), two bits per rank: 0 for a
+// rank not reached yet, otherwise 1 + depth mod 3. In a breadth-first search the neighbours of
+// a state at depth k lie at depth k - 1, k or k + 1, so depth mod 3 is enough to find the
+// predecessor of every state on a path. Pages are allocated on first use like RankBitSet.
+public final class RankDepthMap {
+    private static final int PAGE_BITS = 20;               // 2^20 ranks = 256 KB per page
+    private static final int PAGE_WORDS = 1 << (PAGE_BITS - 5);
+
+    private final long capacity;
+    private final long[][] pages;
+    private long size;
+    private int pagesAllocated;
+
+    public RankDepthMap(long capacity) {
+        if (capacity <= 0 || capacity > PieceTable.MAX_RANK_SPACE) {
+            throw new IllegalArgumentException("Rank space out of range: " + capacity);
+        }
+        this.capacity = capacity;
+        this.pages = new long[(int) ((capacity + (1L << PAGE_BITS) - 1) >>> PAGE_BITS)][];
+    }
+
+    // Depth map for the states of one puzzle, or null when its ranks are not dense
+    public static RankDepthMap forTable(PieceTable table) {
+        return table.hasDenseRanks() ? new RankDepthMap(table.getRankSpace()) : null;
+    }
+
+    // Records the depth of a rank; returns true when the rank was not reached before
+    public boolean add(long rank, int depth) {
+        int page = (int) (rank >>> PAGE_BITS);
+        long[] words = pages[page];
+        if (words == null) {
+            words = new long[PAGE_WORDS];
+            pages[page] = words;
+            pagesAllocated++;
+        }
+        int word = (int) (rank >>> 5) & (PAGE_WORDS - 1);
+        int shift = (int) (rank & 31) << 1;
+        if (((words[word] >>> shift) & 3L) != 0L) return false;
+
+        words[word] |= (long) (depth % 3 + 1) << shift;
+        size++;
+        return true;
+    }
+
+    // Depth mod 3 of a rank, -1 when it was not reached
+    public int depthMod3(long rank) {
+        long[] words = pages[(int) (rank >>> PAGE_BITS)];
+        if (words == null) return -1;
+        int shift = (int) (rank & 31) << 1;
+        return (int) ((words[(int) (rank >>> 5) & (PAGE_WORDS - 1)] >>> shift) & 3L) - 1;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        for (long[] words : pages) {
+            if (words != null) {
+                Arrays.fill(words, 0L);
+            }
+        }
+        size = 0;
+    }
+
+    // Bytes held by the allocated pages and the page index
+    public long memoryUsage() {
+        return 8L * PAGE_WORDS * pagesAllocated + 8L * pages.length;
+    }
+}
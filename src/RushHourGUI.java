@@ -8,7 +8,6 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import javax.swing.UnsupportedLookAndFeelException;
@@ -113,7 +112,8 @@ public class RushHourGUI extends JFrame {
                 "UCS (Uniform Cost Search)",
                 "GBFS (Greedy Best First Search)",
                 "A* (A-Star)",
-                "IDA* (Iterative Deepening A*)"
+                "IDA* (Iterative Deepening A*)",
+                "Bidirectional BFS"
         });
         controlPanel.add(algorithmComboBox, gbc);
 
@@ -232,8 +232,8 @@ public class RushHourGUI extends JFrame {
         // Algorithm selection handler
         algorithmComboBox.addActionListener(e -> {
             int selected = algorithmComboBox.getSelectedIndex();
-            // UCS doesn't use heuristics, others do
-            heuristicComboBox.setEnabled(selected != 0);
+            // UCS and the bidirectional BFS don't use heuristics, others do
+            heuristicComboBox.setEnabled(selected != 0 && selected != 4);
         });
 
         // Load button handler
@@ -356,20 +356,16 @@ public class RushHourGUI extends JFrame {
                 solveButton.setEnabled(false);
                 saveButton.setEnabled(false); // Disable save button during solving
 
-                // Create a copy of the game for solving
-                RushHourGame gameCopy = new RushHourGame(currentGame);
-                currentSolution = currentAlgorithm.solve(gameCopy);
-                currentActions = currentAlgorithm.getSolutionActions();
+                // States are immutable, so the worker can solve the game shown on screen directly
+                currentAlgorithm.solve(currentGame);
+                currentSolution = null;
+                currentActions = null;
 
-                if (currentSolution != null && !currentSolution.isEmpty()) {
-                    List<RushHourGame> solutionWithExit = new ArrayList<>(currentSolution);
-                    List<String> actionsWithExit = new ArrayList<>(currentActions);
-                    RushHourGame finalState = new RushHourGame(solutionWithExit.get(solutionWithExit.size() - 1));
-                    finalState.removePrimaryPiece();
-                    solutionWithExit.add(finalState);
-                    actionsWithExit.add("EXIT");
+                // Solution and actions with the final exit step; boards are built as they are shown
+                if (currentAlgorithm.getSolution() != null) {
+                    Solution solutionWithExit = currentAlgorithm.getSolution().withExit();
                     currentSolution = solutionWithExit;
-                    currentActions = actionsWithExit;
+                    currentActions = solutionWithExit.getActions();
                 }
 
                 return null;
@@ -461,6 +457,8 @@ public class RushHourGUI extends JFrame {
                 return new AStar(heuristicIndex);
             case 3:
                 return new IDAStar(heuristicIndex);
+            case 4:
+                return new BidirectionalBFS();
             default:
                 return new UCS();
         }
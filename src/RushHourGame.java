@@ -3,47 +3,81 @@ package src;
 import java.util.*;
 import java.io.*;
 
-public class RushHourGame {
-    private int rows, cols;
-    private char[][] board;
-    private char primaryPiece = 'P';
-    private char exit = 'K';
-    protected int exitRow, exitCol;
-    protected int primaryRow, primaryCol;
-    private Map<Character, List<int[]>> pieces;
-
-    public RushHourGame(int rows, int cols) {
-        this.rows = rows;
-        this.cols = cols;
-        this.board = new char[rows][cols];
-        this.pieces = new HashMap<>();
-    }
-
-    // Copy constructor for creating new states
-    public RushHourGame(RushHourGame other) {
-        this.rows = other.rows;
-        this.cols = other.cols;
-        this.board = new char[rows][cols];
-        this.pieces = new HashMap<>();
-
-        // Deep copy board
-        for (int i = 0; i < rows; i++) {
-            System.arraycopy(other.board[i], 0, this.board[i], 0, cols);
-        }
+// One state of a puzzle. States are immutable: static piece data is shared through the
+// PieceTable and a state only owns the offset of each piece along its lane, so a state can be
+// handed to any number of solver threads without copying or locking. Puzzles are put together
+// with RushHourGame.Builder; depth-first engines that want to slide pieces in place use a
+// WorkingBoard instead.
+public final class RushHourGame {
+    private static final char PRIMARY_PIECE = 'P';
+    private static final char EXIT = 'K';
+
+    private final PieceTable table;
+    private final byte[] offsets;
+    private final long occupied;      // occupied cells (bit row * cols + col) when table.isBitboard()
+    private final long[] rowBits;     // otherwise occupied cells per normalized row, see PieceTable.rowOccupancy
+    private final long key;           // Zobrist key of offsets
+    private final long exitLane;      // occupied cells of the primary row (bit = column), see isGoalState
+
+    private RushHourGame(PieceTable table, byte[] offsets, long occupied, long[] rowBits, long key, long exitLane) {
+        this.table = table;
+        this.offsets = offsets;
+        this.occupied = occupied;
+        this.rowBits = rowBits;
+        this.key = key;
+        this.exitLane = exitLane;
+    }
 
-        // Deep copy pieces
-        for (Map.Entry<Character, List<int[]>> entry : other.pieces.entrySet()) {
-            List<int[]> newPieces = new ArrayList<>();
-            for (int[] piece : entry.getValue()) {
-                newPieces.add(piece.clone());
-            }
-            this.pieces.put(entry.getKey(), newPieces);
-        }
+    // Initial state of a puzzle
+    public static RushHourGame initial(PieceTable table) {
+        return of(table, table.initialOffsets());
+    }
+
+    // State with the given offsets; the array is copied
+    static RushHourGame of(PieceTable table, byte[] offsets) {
+        byte[] copy = offsets.clone();
+        long occupied = table.isBitboard() ? table.occupancy(copy) : 0L;
+        long[] rowBits = table.isBitboard() ? null : table.rowOccupancy(copy);
+        return new RushHourGame(table, copy, occupied, rowBits, table.zobristKey(copy), table.exitLane(copy));
+    }
+
+    public PieceTable getPieceTable() {
+        return table;
+    }
+
+    public long getZobristKey() {
+        return key;
+    }
+
+    // Copy of the piece offsets, indexed like the piece table
+    public byte[] getOffsets() {
+        return offsets.clone();
+    }
+
+    // Offset of piece p along its lane, -1 once the piece has left the board
+    public int getOffset(int p) {
+        return offsets[p];
+    }
+
+    // Exact packed form of the state for the primitive key sets, see PieceTable.packKey
+    public int getKeyWords() {
+        return table.getKeyWords();
+    }
+
+    public void packKey(long[] dest) {
+        table.packKey(offsets, dest, 0);
+    }
+
+    // Dense index of the state, see PieceTable.rank (only when the table isRankable)
+    public long getRank() {
+        return table.rank(offsets);
+    }
 
-        this.exitRow = other.exitRow;
-        this.exitCol = other.exitCol;
-        this.primaryRow = other.primaryRow;
-        this.primaryCol = other.primaryCol;
+    // State with the given rank; ranks of overlapping configurations give illegal states
+    public static RushHourGame fromRank(PieceTable table, long rank) {
+        byte[] offsets = new byte[table.getPieceCount()];
+        table.unrank(rank, offsets);
+        return of(table, offsets);
     }
 
     public static RushHourGame loadFromFile(String filename) throws IOException {
@@ -58,7 +92,7 @@ public class RushHourGame {
             // Read number of pieces (not including primary piece)
             int numPieces = Integer.parseInt(reader.readLine());
 
-            RushHourGame game = new RushHourGame(rows, cols);
+            Builder game = new Builder(rows, cols);
 
             // Read all lines to find the board and exit
             List<String> allLines = new ArrayList<>();
@@ -70,11 +104,10 @@ public class RushHourGame {
             // Check for exit at the top (before the board)
             boolean exitFound = false;
             int startLine = 0;
-            
+
             // Check if first line is just "K" (exit at top)
             if (allLines.size() > 0 && allLines.get(0).trim().equals("K")) {
-                game.exitRow = -1;
-                game.exitCol = cols / 2; // Place at center of top border
+                game.setExitPosition(-1, cols / 2); // Place at center of top border
                 exitFound = true;
                 startLine = 1;
             }
@@ -84,21 +117,19 @@ public class RushHourGame {
                 if (startLine + i >= allLines.size()) {
                     throw new IOException("Not enough lines for board");
                 }
-                
+
                 String boardLine = allLines.get(startLine + i);
-                
+
                 // Check for exit on left side
                 if (boardLine.startsWith("K")) {
-                    game.exitRow = i;
-                    game.exitCol = -1;
+                    game.setExitPosition(i, -1);
                     exitFound = true;
                     boardLine = boardLine.substring(1); // Remove K from beginning
                 }
-                
+
                 // Check for exit on right side
                 if (boardLine.endsWith("K")) {
-                    game.exitRow = i;
-                    game.exitCol = cols;
+                    game.setExitPosition(i, cols);
                     exitFound = true;
                     boardLine = boardLine.substring(0, boardLine.length() - 1); // Remove K from end
                 }
@@ -110,17 +141,13 @@ public class RushHourGame {
 
                 for (int j = 0; j < cols; j++) {
                     char c = boardLine.charAt(j);
-                    game.board[i][j] = c;
+                    game.getBoard()[i][j] = c;
 
                     if (c != '.') {
-                        if (!game.pieces.containsKey(c)) {
-                            game.pieces.put(c, new ArrayList<>());
-                        }
-                        game.pieces.get(c).add(new int[]{i, j});
+                        game.addPiecePosition(c, i, j);
 
                         if (c == 'P') {
-                            game.primaryRow = i;
-                            game.primaryCol = j;
+                            game.setPrimaryPosition(i, j);
                         }
                     }
                 }
@@ -130,8 +157,7 @@ public class RushHourGame {
             if (startLine + rows < allLines.size()) {
                 String bottomLine = allLines.get(startLine + rows);
                 if (bottomLine.trim().equals("K")) {
-                    game.exitRow = rows;
-                    game.exitCol = cols / 2; // Place at center of bottom border
+                    game.setExitPosition(rows, cols / 2); // Place at center of bottom border
                     exitFound = true;
                 }
             }
@@ -140,424 +166,334 @@ public class RushHourGame {
                 throw new IOException("No exit 'K' found outside the board border");
             }
 
-            return game;
+            return game.build();
         } finally {
             reader.close();
         }
     }
-    public boolean isGoalState() {
-        // Check if primary piece can exit
-        List<int[]> primaryPositions = pieces.get('P');
-        if (primaryPositions == null) return false;
-
-        // Determine orientation of primary piece
-        boolean isHorizontal = primaryPositions.size() > 1 &&
-                primaryPositions.get(0)[0] == primaryPositions.get(1)[0];
-
-        if (isHorizontal) {
-            // Primary piece is horizontal, exit should be on the same row
-            if (exitRow != primaryRow) return false;
-
-            // Check if we can slide the primary piece to the exit
-            int minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
-            for (int[] pos : primaryPositions) {
-                minCol = Math.min(minCol, pos[1]);
-                maxCol = Math.max(maxCol, pos[1]);
-            }
 
-            // Check if exit is reachable
-            if (exitCol == cols) {
-                // Exit is at right border
-                if (maxCol == cols - 1) {
-                    // Primary piece is already at the edge, goal reached
-                    return true;
-                } else {
-                    // Check if path to right edge is clear
-                    for (int j = maxCol + 1; j < cols; j++) {
-                        if (board[exitRow][j] != '.') {
-                            return false;
-                        }
-                    }
-                    return true;
-                }
-            } else if (exitCol == -1) {
-                // Exit is at left edge
-                for (int j = exitCol + 1; j < minCol; j++) {
-                    if (board[exitRow][j] != '.') return false;
-                }
-                return true;
-             }else if (exitCol > maxCol) {
-                // Exit is to the right, check if path is clear
-                for (int j = maxCol + 1; j <= exitCol; j++) {
-                    if (board[exitRow][j] != '.') {
-                        return false;
-                    }
-                }
-                return true;
-            } else if (exitCol < minCol) {
-                // Exit is to the left, check if path is clear
-                for (int j = exitCol; j < minCol; j++) {
-                    if (board[exitRow][j] != '.') {
-                        return false;
-                    }
-                }
-                return true;
-            }
-        } else {
-            // Primary piece is vertical, exit should be on the same column
-            if (exitCol != primaryCol) return false;
-
-            // Check if we can slide the primary piece to the exit
-            int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
-            for (int[] pos : primaryPositions) {
-                minRow = Math.min(minRow, pos[0]);
-                maxRow = Math.max(maxRow, pos[0]);
-            }
-
-            // Check if exit is reachable
-            if (exitRow == rows) {
-                // Exit is at bottom border
-                if (maxRow == rows - 1) {
-                    // Primary piece is already at the edge, goal reached
-                    return true;
-                } else {
-                    // Check if path to bottom edge is clear
-                    for (int i = maxRow + 1; i < rows; i++) {
-                        if (board[i][exitCol] != '.') {
-                            return false;
-                        }
-                    }
-                    return true;
-                }
-            } else if (exitRow == -1) {
-                // Exit is at top
-                for (int i = exitRow + 1; i < minRow; i++) {
-                    if (board[i][exitCol] != '.') return false;
-                }
-                return true;
-            }else if (exitRow > maxRow) {
-                // Exit is below, check if path is clear
-                for (int i = maxRow + 1; i <= exitRow; i++) {
-                    if (board[i][exitCol] != '.') {
-                        return false;
-                    }
-                }
-                return true;
-            } else if (exitRow < minRow) {
-                // Exit is above, check if path is clear
-                for (int i = exitRow; i < minRow; i++) {
-                    if (board[i][exitCol] != '.') {
-                        return false;
-                    }
-                }
-                return true;
-            }
-        }
+    public boolean isGoalState() {
+        return isGoal(table, offsets, exitLane);
+    }
 
-        return false;
+    // Same as successor(move).isGoalState(), without building the successor
+    public boolean successorIsGoal(int move) {
+        return successorIsGoal(table, offsets, exitLane, move);
     }
 
     public List<RushHourGame> getNextStates() {
         List<RushHourGame> nextStates = new ArrayList<>();
+        for (MoveCursor moves = new MoveCursor(this); moves.next(); ) {
+            nextStates.add(moves.child());
+        }
+        return nextStates;
+    }
 
-        for (Map.Entry<Character, List<int[]>> entry : pieces.entrySet()) {
-            char piece = entry.getKey();
-            List<int[]> positions = entry.getValue();
+    // Writes every legal move of this state into the cursor, without building any state
+    void generateMoves(MoveCursor out) {
+        out.start(table, offsets, occupied, rowBits, key, exitLane);
+    }
 
-            if (positions.size() < 2) continue;
+    // State reached by a move from generateMoves
+    public RushHourGame successor(int move) {
+        return successor(table, offsets, occupied, rowBits, key, exitLane, move);
+    }
 
-            // Determine if piece is horizontal or vertical
-            boolean isHorizontal = positions.get(0)[0] == positions.get(1)[0];
+    // Same as successor(move).equals(other), without building the successor
+    public boolean successorEquals(int move, RushHourGame other) {
+        if (other.table != table) return successor(move).equals(other);
 
-            if (isHorizontal) {
-                // Try moving left and right
-                tryMoveHorizontal(nextStates, piece, -1); // left
-                tryMoveHorizontal(nextStates, piece, 1);  // right
-            } else {
-                // Try moving up and down
-                tryMoveVertical(nextStates, piece, -1); // up
-                tryMoveVertical(nextStates, piece, 1);  // down
-            }
+        int p = MoveCursor.piece(move);
+        int target = MoveCursor.target(move);
+        if (successorZobristKey(move) != other.key) return false;
+        for (int q = 0; q < offsets.length; q++) {
+            if (other.offsets[q] != (q == p ? target : offsets[q])) return false;
         }
-
-        return nextStates;
+        return true;
     }
 
-    private void tryMoveHorizontal(List<RushHourGame> nextStates, char piece, int direction) {
-    List<int[]> positions = pieces.get(piece);
-    int row = positions.get(0)[0];
+    public long successorZobristKey(int move) {
+        int p = MoveCursor.piece(move);
+        return key ^ table.zobrist(p, MoveCursor.source(move)) ^ table.zobrist(p, MoveCursor.target(move));
+    }
 
-    int minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
-    for (int[] pos : positions) {
-        minCol = Math.min(minCol, pos[1]);
-        maxCol = Math.max(maxCol, pos[1]);
+    // Action label of a move, e.g. "A-kanan"
+    public String getMoveAction(int move) {
+        return table.moveLabel(MoveCursor.piece(move), MoveCursor.target(move) > MoveCursor.source(move));
     }
 
-    int step = 1;
-    while (true) {
-        int newCol = (direction > 0) ? maxCol + step : minCol - step;
+    // Describes the single piece move leading from this state to next, e.g. "A-kanan"
+    public String getMoveAction(RushHourGame next) {
+        for (int p = 0; p < offsets.length; p++) {
+            int before = offsets[p];
+            int after = next.offsets[p];
+            if (before == after || before < 0 || after < 0) continue;
 
-        // Allow primary piece to exit if at the border
-        if (piece == 'P' && exitRow == row && newCol == exitCol) {
-            RushHourGame newState = new RushHourGame(this);
-            newState.primaryRow = row;
-            newState.primaryCol = exitCol;
-            nextStates.add(newState);
-            break;
+            return table.moveLabel(p, after > before);
         }
+        return "Unknown";
+    }
 
-        // Check bounds
-        if (newCol < 0 || newCol >= cols) break;
+    // Calculate heuristic 1: Manhattan distance from primary piece to exit
+    public int getHeuristic1() {
+        return heuristic1(table, offsets, exitLane);
+    }
 
-        // Check all positions along the path
-        boolean clear = true;
-        for (int s = 1; s <= step; s++) {
-            int colToCheck = (direction > 0) ? maxCol + s : minCol - s;
-            if (colToCheck < 0 || colToCheck >= cols || board[row][colToCheck] != '.') {
-                clear = false;
-                break;
-            }
-        }
+    // Calculate heuristic 2: Number of blocking pieces + distance
+    public int getHeuristic2() {
+        return heuristic2(table, offsets, exitLane);
+    }
 
-        if (!clear) break;
+    // Blocker graph, see blocker(): the piece p runs into when sliding forward (towards higher
+    // offsets) or backward, -1 when nothing stops it before the border
+    public int getBlocker(int p, boolean forward) {
+        return blocker(table, offsets, occupied, rowBits, p, forward);
+    }
 
-        // Create new state
-        RushHourGame newState = new RushHourGame(this);
+    // Pieces between the primary piece and the exit, nearest first
+    public int[] getExitBlockers() {
+        return exitBlockers(table, offsets, exitLane);
+    }
 
-        // Clear old positions
-        for (int[] pos : positions) {
-            newState.board[pos[0]][pos[1]] = '.';
-        }
+    // The same state after the primary piece has driven out through the exit
+    public RushHourGame withoutPrimaryPiece() {
+        int p = table.getPrimaryIndex();
+        if (p < 0 || offsets[p] < 0) return this;
+
+        byte[] next = offsets.clone();
+        next[p] = -1;
+        long nextOccupied = table.isBitboard() ? occupied & ~table.mask(p, offsets[p]) : 0L;
+        long[] nextRowBits = table.isBitboard() ? null : table.rowOccupancy(next);
+        return new RushHourGame(table, next, nextOccupied, nextRowBits,
+                key ^ table.zobrist(p, offsets[p]), exitLane ^ table.exitLaneMask(p, offsets[p]));
+    }
 
-        // Create updated positions
-        List<int[]> newPositions = new ArrayList<>();
-        for (int[] pos : positions) {
-            int newY = pos[1] + direction * step;
-            newState.board[row][newY] = piece;
-            newPositions.add(new int[]{row, newY});
-        }
+    // State logic over the raw fields, shared by the immutable states and WorkingBoard.
 
-        newState.pieces.put(piece, newPositions);
-        if (piece == 'P') {
-            newState.primaryRow = row;
-            newState.primaryCol = newPositions.get(0)[1];
-        }
+    // The exit lane bits and the primary offset are kept up to date by every move, so the
+    // goal test is one mask check: no cell between the primary piece and the exit is taken
+    static boolean isGoal(PieceTable table, byte[] offsets, long exitLane) {
+        if (!table.isExitInPrimaryLane()) return false;
 
-        nextStates.add(newState);
-        step++;
+        int primaryOffset = offsets[table.getPrimaryIndex()];
+        return primaryOffset >= 0 && (exitLane & table.exitAhead(primaryOffset)) == 0L;
     }
-}
 
-   private void tryMoveVertical(List<RushHourGame> nextStates, char piece, int direction) {
-    List<int[]> positions = pieces.get(piece);
-    int col = positions.get(0)[1];
+    static boolean successorIsGoal(PieceTable table, byte[] offsets, long exitLane, int move) {
+        if (!table.isExitInPrimaryLane()) return false;
 
-    int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
-    for (int[] pos : positions) {
-        minRow = Math.min(minRow, pos[0]);
-        maxRow = Math.max(maxRow, pos[0]);
+        int p = MoveCursor.piece(move);
+        int primary = table.getPrimaryIndex();
+        long lane = exitLane ^ table.exitLaneMask(p, MoveCursor.source(move)) ^ table.exitLaneMask(p, MoveCursor.target(move));
+        int primaryOffset = p == primary ? MoveCursor.target(move) : offsets[primary];
+        return primaryOffset >= 0 && (lane & table.exitAhead(primaryOffset)) == 0L;
     }
 
-    int step = 1;
-    while (true) {
-        int newRow = (direction > 0) ? maxRow + step : minRow - step;
+    static RushHourGame successor(PieceTable table, byte[] offsets, long occupied, long[] rowBits,
+                                  long key, long exitLane, int move) {
+        int p = MoveCursor.piece(move);
+        int from = MoveCursor.source(move);
+        int to = MoveCursor.target(move);
+
+        byte[] next = offsets.clone();
+        next[p] = (byte) to;
+        long nextOccupied = 0L;
+        long[] nextRowBits = null;
+        if (table.isBitboard()) {
+            nextOccupied = (occupied & ~table.mask(p, from)) | table.mask(p, to);
+        } else {
+            nextRowBits = rowBits.clone();
+            table.slideRows(nextRowBits, p, from, to);
+        }
+        return new RushHourGame(table, next, nextOccupied, nextRowBits,
+                key ^ table.zobrist(p, from) ^ table.zobrist(p, to),
+                exitLane ^ table.exitLaneMask(p, from) ^ table.exitLaneMask(p, to));
+    }
 
-        // Allow primary piece to exit if at the border
-        if (piece == 'P' && exitCol == col && newRow == exitRow) {
-            RushHourGame newState = new RushHourGame(this);
-            newState.primaryRow = exitRow;
-            newState.primaryCol = col;
-            nextStates.add(newState);
-            break;
+    static void generateMoves(PieceTable table, byte[] offsets, long occupied, long[] rowBits, MoveCursor out) {
+        if (!table.isBitboard()) {
+            generateRowMoves(table, offsets, rowBits, out);
+            return;
+        }
+        if (LaneTables.isClassicBoard(table.getRows(), table.getCols())) {
+            generateClassicMoves(table, offsets, occupied, out);
+            return;
         }
 
-        // Check bounds
-        if (newRow < 0 || newRow >= rows) break;
+        for (int p = 0; p < offsets.length; p++) {
+            if (offsets[p] < 0) continue;
 
-        // Check all positions along the path
-        boolean clear = true;
-        for (int s = 1; s <= step; s++) {
-            int rowToCheck = (direction > 0) ? maxRow + s : minRow - s;
-            if (rowToCheck < 0 || rowToCheck >= rows || board[rowToCheck][col] != '.') {
-                clear = false;
-                break;
-            }
+            // Try moving left/up and right/down
+            tryMove(table, offsets, occupied, out, p, -1);
+            tryMove(table, offsets, occupied, out, p, 1);
         }
+    }
 
-        if (!clear) break;
+    // Classic 6x6 engine: the free run on each side of a piece is read from LaneTables
+    // using the 6-bit pattern of its row or column, so no cell is checked twice
+    private static void generateClassicMoves(PieceTable table, byte[] offsets, long occupied, MoveCursor out) {
+        for (int p = 0; p < offsets.length; p++) {
+            int offset = offsets[p];
+            if (offset < 0) continue;
 
-        // Create new state
-        RushHourGame newState = new RushHourGame(this);
+            int pattern = table.isHorizontal(p)
+                    ? LaneTables.rowPattern(occupied, table.getLane(p))
+                    : LaneTables.colPattern(occupied, table.getLane(p));
+            int before = LaneTables.freeBefore(pattern, offset);
+            int after = LaneTables.freeAfter(pattern, offset + table.getLength(p) - 1);
 
-        // Clear old positions
-        for (int[] pos : positions) {
-            newState.board[pos[0]][pos[1]] = '.';
+            addSlides(out, p, offset, before, after);
         }
+    }
 
-        // Create updated positions
-        List<int[]> newPositions = new ArrayList<>();
-        for (int[] pos : positions) {
-            int newX = pos[0] + direction * step;
-            newState.board[newX][col] = piece;
-            newPositions.add(new int[]{newX, col});
-        }
+    // Boards over 64 cells, one long per row: the free run of a horizontal piece is counted
+    // with one bit scan on each side in its row, a vertical piece checks one row per step
+    private static void generateRowMoves(PieceTable table, byte[] offsets, long[] rowBits, MoveCursor out) {
+        int cols = table.getCols();
+        for (int p = 0; p < offsets.length; p++) {
+            int offset = offsets[p];
+            if (offset < 0) continue;
+
+            int last = offset + table.getLength(p) - 1;
+            int before, after;
+            if (table.isHorizontal(p)) {
+                long row = rowBits[table.getLane(p)];
+                before = offset == 0 ? 0 : Math.min(Long.numberOfLeadingZeros(row << (64 - offset)), offset);
+                after = last == cols - 1 ? 0 : Math.min(Long.numberOfTrailingZeros(row >>> (last + 1)), cols - 1 - last);
+            } else {
+                long bit = 1L << table.getLane(p);
+                before = 0;
+                while (before < offset && (rowBits[offset - before - 1] & bit) == 0L) {
+                    before++;
+                }
+                after = 0;
+                while (last + after + 1 < table.getRows() && (rowBits[last + after + 1] & bit) == 0L) {
+                    after++;
+                }
+            }
 
-        newState.pieces.put(piece, newPositions);
-        if (piece == 'P') {
-            newState.primaryRow = newPositions.get(0)[0];
-            newState.primaryCol = col;
+            addSlides(out, p, offset, before, after);
         }
+    }
 
-        nextStates.add(newState);
-        step++;
+    private static void addSlides(MoveCursor out, int p, int offset, int before, int after) {
+        for (int step = 1; step <= before; step++) {
+            out.add(MoveCursor.encode(p, offset, offset - step));
+        }
+        for (int step = 1; step <= after; step++) {
+            out.add(MoveCursor.encode(p, offset, offset + step));
+        }
     }
-}
 
-    // Calculate heuristic 1: Manhattan distance from primary piece to exit
-    public int getHeuristic1() {
-        if (isGoalState()) return 0;
+    // Slides piece p one cell at a time (direction -1 = left/up, 1 = right/down),
+    // only checking the cell it moves into on each step
+    private static void tryMove(PieceTable table, byte[] offsets, long occupied, MoveCursor out,
+                                int p, int direction) {
+        int offset = offsets[p];
+        int length = table.getLength(p);
+        int laneLength = table.laneLength(p);
 
-        List<int[]> primaryPositions = pieces.get('P');
-        if (primaryPositions == null) return Integer.MAX_VALUE;
+        for (int step = 1; ; step++) {
+            int newOffset = offset + direction * step;
+            int along = direction > 0 ? newOffset + length - 1 : newOffset;
 
-        // Determine if primary piece is horizontal or vertical
-        boolean isHorizontal = primaryPositions.size() > 1 &&
-                primaryPositions.get(0)[0] == primaryPositions.get(1)[0];
+            // Check bounds and the newly covered cell
+            if (along < 0 || along >= laneLength) break;
+            if ((occupied & (1L << table.cellIndex(p, along))) != 0L) break;
 
-        if (isHorizontal) {
-            // Primary piece is horizontal
-            int minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
-            for (int[] pos : primaryPositions) {
-                minCol = Math.min(minCol, pos[1]);
-                maxCol = Math.max(maxCol, pos[1]);
-            }
+            out.add(MoveCursor.encode(p, offset, newOffset));
+        }
+    }
 
-            // Calculate distance to exit
-            if (exitRow == primaryRow) {
-                if (exitCol == cols) {
-                    // Exit is at right border
-                    return cols - maxCol - 1;
-                } else if (exitCol > maxCol) {
-                    return exitCol - maxCol;
-                } else if (exitCol < minCol) {
-                    return minCol - exitCol;
-                }
-            }
-            return Math.abs(exitRow - primaryRow) + Math.min(Math.abs(exitCol - minCol), Math.abs(exitCol - maxCol));
-        } else {
-            // Primary piece is vertical
-            int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
-            for (int[] pos : primaryPositions) {
-                minRow = Math.min(minRow, pos[0]);
-                maxRow = Math.max(maxRow, pos[0]);
+    // rowBits is null for bitboard tables, where the occupied mask is used instead
+    private static boolean isOccupied(PieceTable table, long occupied, long[] rowBits, int row, int col) {
+        if (rowBits == null) return (occupied & (1L << (row * table.getCols() + col))) != 0L;
+        return (rowBits[row] & (1L << col)) != 0L;
+    }
+
+    // An edge p -> q of the blocker graph says q covers the first taken cell past p in one
+    // direction, so q has to vacate it before p can slide any further that way. Edges are read
+    // from the occupancy every move keeps up to date plus the lane index of the table, so a
+    // state never stores or rebuilds the graph and a query only walks the free cells in front of p
+    static int blocker(PieceTable table, byte[] offsets, long occupied, long[] rowBits, int p, boolean forward) {
+        if (offsets[p] < 0) return -1;
+
+        int step = forward ? 1 : -1;
+        for (int along = forward ? offsets[p] + table.getLength(p) : offsets[p] - 1;
+             along >= 0 && along < table.laneLength(p); along += step) {
+            int row = table.rowAt(p, along);
+            int col = table.colAt(p, along);
+            if (isOccupied(table, occupied, rowBits, row, col)) {
+                return table.pieceAt(offsets, row, col);
             }
+        }
+        return -1;
+    }
 
-            // Calculate distance to exit
-            if (exitCol == primaryCol) {
-                if (exitRow == rows) {
-                    // Exit is at bottom border
-                    return rows - maxRow - 1;
-                } else if (exitRow > maxRow) {
-                    return exitRow - maxRow;
-                } else if (exitRow < minRow) {
-                    return minRow - exitRow;
-                }
+    // The exit lane mask already holds the taken cells ahead of the primary piece, so only
+    // their owners are looked up
+    static int[] exitBlockers(PieceTable table, byte[] offsets, long exitLane) {
+        if (!table.isExitInPrimaryLane() || !hasPrimaryPiece(table, offsets)) return new int[0];
+
+        long ahead = exitLane & table.exitAhead(offsets[table.getPrimaryIndex()]);
+        int[] blockers = new int[Long.bitCount(ahead)];
+        int count = 0;
+        for (; ahead != 0L; ahead &= ahead - 1) {
+            int q = table.pieceAt(offsets, table.getExitRow(), Long.numberOfTrailingZeros(ahead));
+            if (count == 0 || blockers[count - 1] != q) {
+                blockers[count++] = q;
             }
-            return Math.abs(exitCol - primaryCol) + Math.min(Math.abs(exitRow - minRow), Math.abs(exitRow - maxRow));
         }
+        return Arrays.copyOf(blockers, count);
     }
 
-    // Calculate heuristic 2: Number of blocking pieces + distance
-    public int getHeuristic2() {
-        if (isGoalState()) return 0;
+    static int heuristic1(PieceTable table, byte[] offsets, long exitLane) {
+        if (isGoal(table, offsets, exitLane)) return 0;
+        if (!hasPrimaryPiece(table, offsets)) return Integer.MAX_VALUE;
 
-        List<int[]> primaryPositions = pieces.get('P');
-        if (primaryPositions == null) return Integer.MAX_VALUE;
+        int primary = table.getPrimaryIndex();
+        int maxCol = offsets[primary] + table.getLength(primary) - 1;
 
-        // Determine if primary piece is horizontal or vertical
-        boolean isHorizontal = primaryPositions.size() > 1 &&
-                primaryPositions.get(0)[0] == primaryPositions.get(1)[0];
+        // Normalized: exit past the right border of the primary row
+        if (table.isExitInPrimaryLane()) {
+            return table.getCols() - maxCol - 1;
+        }
 
-        int blockingPieces = 0;
-        int distance = 0;
+        // Exit off the primary lane (never normalized): across the lane, then along it
+        int minPos = offsets[primary];
+        int maxPos = minPos + table.getLength(primary) - 1;
+        int along = table.isHorizontal(primary) ? table.getExitCol() : table.getExitRow();
+        return crossLaneDistance(table) + Math.min(Math.abs(along - minPos), Math.abs(along - maxPos));
+    }
 
-        if (isHorizontal) {
-            // Primary piece is horizontal
-            int minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
-            for (int[] pos : primaryPositions) {
-                minCol = Math.min(minCol, pos[1]);
-                maxCol = Math.max(maxCol, pos[1]);
-            }
+    static int heuristic2(PieceTable table, byte[] offsets, long exitLane) {
+        if (isGoal(table, offsets, exitLane)) return 0;
+        if (!hasPrimaryPiece(table, offsets)) return Integer.MAX_VALUE;
 
-            // Count blocking pieces and calculate distance
-            if (exitRow == primaryRow) {
-                if (exitCol == cols) {
-                    // Exit is at right border
-                    distance = cols - maxCol - 1;
-                    for (int j = maxCol + 1; j < cols; j++) {
-                        if (board[exitRow][j] != '.') {
-                            blockingPieces++;
-                        }
-                    }
-                } else if (exitCol > maxCol) {
-                    distance = exitCol - maxCol;
-                    for (int j = maxCol + 1; j < exitCol; j++) {
-                        if (board[exitRow][j] != '.') {
-                            blockingPieces++;
-                        }
-                    }
-                } else if (exitCol < minCol) {
-                    distance = minCol - exitCol;
-                    for (int j = exitCol + 1; j < minCol; j++) {
-                        if (board[exitRow][j] != '.') {
-                            blockingPieces++;
-                        }
-                    }
-                }
-            } else {
-                distance = Math.abs(exitRow - primaryRow);
-                blockingPieces = 1; // Primary piece needs to be moved vertically first
-            }
-        } else {
-            // Primary piece is vertical
-            int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
-            for (int[] pos : primaryPositions) {
-                minRow = Math.min(minRow, pos[0]);
-                maxRow = Math.max(maxRow, pos[0]);
-            }
+        int primary = table.getPrimaryIndex();
+        int maxCol = offsets[primary] + table.getLength(primary) - 1;
 
-            // Count blocking pieces and calculate distance
-            if (exitCol == primaryCol) {
-                if (exitRow == rows) {
-                    // Exit is at bottom border
-                    distance = rows - maxRow - 1;
-                    for (int i = maxRow + 1; i < rows; i++) {
-                        if (board[i][exitCol] != '.') {
-                            blockingPieces++;
-                        }
-                    }
-                } else if (exitRow > maxRow) {
-                    distance = exitRow - maxRow;
-                    for (int i = maxRow + 1; i < exitRow; i++) {
-                        if (board[i][exitCol] != '.') {
-                            blockingPieces++;
-                        }
-                    }
-                } else if (exitRow < minRow) {
-                    distance = minRow - exitRow;
-                    for (int i = exitRow + 1; i < minRow; i++) {
-                        if (board[i][exitCol] != '.') {
-                            blockingPieces++;
-                        }
-                    }
-                }
-            } else {
-                distance = Math.abs(exitCol - primaryCol);
-                blockingPieces = 1; // Primary piece needs to be moved horizontally first
-            }
+        // Normalized: every occupied cell between the primary piece and the right border blocks
+        if (table.isExitInPrimaryLane()) {
+            int distance = table.getCols() - maxCol - 1;
+            int blockingPieces = Long.bitCount(exitLane & table.exitAhead(offsets[primary]));
+            return blockingPieces * 2 + distance;
         }
 
-        return blockingPieces * 2 + distance;
+        // Primary piece needs to be moved sideways first
+        return 2 + crossLaneDistance(table);
+    }
+
+    // Exit off the primary lane: how far the exit is from that lane
+    private static int crossLaneDistance(PieceTable table) {
+        int primary = table.getPrimaryIndex();
+        int across = table.isHorizontal(primary) ? table.getExitRow() : table.getExitCol();
+        return Math.abs(across - table.getLane(primary));
+    }
+
+    private static boolean hasPrimaryPiece(PieceTable table, byte[] offsets) {
+        int p = table.getPrimaryIndex();
+        return p >= 0 && offsets[p] >= 0;
     }
 
     @Override
@@ -567,82 +503,186 @@ public class RushHourGame {
 
         RushHourGame other = (RushHourGame) obj;
 
-        if (rows != other.rows || cols != other.cols) return false;
-
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                if (board[i][j] != other.board[i][j]) return false;
-            }
+        // States of one puzzle share their table, so comparing the offsets is enough;
+        // different Zobrist keys already prove the states differ
+        if (table == other.table) {
+            return key == other.key && Arrays.equals(offsets, other.offsets);
         }
 
-        return true;
+        if (getRows() != other.getRows() || getCols() != other.getCols()) return false;
+        return Arrays.deepEquals(getCells(), other.getCells());
+    }
+
+    // Compares piece geometry only: true when both states have the same shapes in the same
+    // places, even if identical pieces carry different letters (the same puzzle written with
+    // other labels). Within one puzzle this is exactly equals(), see PieceTable.buildGeometryOrder
+    public boolean equalsIgnoringLabels(RushHourGame other) {
+        if (table == other.table) return equals(other);
+        if (!table.isSameGeometry(other.table)) return false;
+
+        long[] packed = new long[table.getKeyWords()];
+        long[] otherPacked = new long[table.getKeyWords()];
+        packKey(packed);
+        other.packKey(otherPacked);
+        return Arrays.equals(packed, otherPacked);
     }
 
     @Override
     public int hashCode() {
-        int hash = rows * 31 + cols;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                hash = hash * 31 + board[i][j];
-            }
-        }
-        return hash;
+        return (int) (key ^ (key >>> 32));
     }
 
+    // Token boards are written back in their own format: one label per cell, space separated
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                sb.append(board[i][j]);
+        if (!table.hasNumberedPieces()) {
+            for (char[] row : getBoard()) {
+                sb.append(row).append('\n');
+            }
+            return sb.toString();
+        }
+
+        for (int[] row : getCells()) {
+            for (int j = 0; j < row.length; j++) {
+                if (j > 0) sb.append(' ');
+                sb.append(PieceIds.label(row[j]));
             }
             sb.append('\n');
         }
         return sb.toString();
     }
 
-    // Getters
-    public int getRows() { return rows; }
-    public int getCols() { return cols; }
-    public char[][] getBoard() { return board; }
-    public char getPrimaryPiece() { return primaryPiece; }
-    public char getExit() { return exit; }
-    public int getExitRow() { return exitRow; }
-    public int getExitCol() { return exitCol; }
-    public int getPrimaryRow() { return primaryRow; }
-    public int getPrimaryCol() { return primaryCol; }
-    public Map<Character, List<int[]>> getPieces() { return pieces; }
+    // Getters, all in the orientation of the input file
+    public int getRows() { return table.getDisplayRows(); }
+    public int getCols() { return table.getDisplayCols(); }
+
+    // Fresh char view of the state on every call; changing it does not change the state.
+    // Numbered vehicles of token boards all show as '#', see getCells for their IDs
+    public char[][] getBoard() {
+        int[][] cells = getCells();
+        char[][] view = new char[getRows()][getCols()];
+        for (int i = 0; i < view.length; i++) {
+            for (int j = 0; j < view[i].length; j++) {
+                view[i][j] = PieceIds.displayChar(cells[i][j]);
+            }
+        }
+        return view;
+    }
 
-    // Setter methods
-    public void setExitPosition(int row, int col) {
-        this.exitRow = row;
-        this.exitCol = col;
+    // Piece ID of every cell (PieceIds.EMPTY when free), fresh on every call
+    public int[][] getCells() {
+        int[][] view = new int[getRows()][getCols()];
+        for (int[] row : view) {
+            Arrays.fill(row, PieceIds.EMPTY);
+        }
+        for (int p = 0; p < offsets.length; p++) {
+            if (offsets[p] < 0) continue;
+            for (int i = 0; i < table.getLength(p); i++) {
+                int along = offsets[p] + i;
+                view[table.displayRowAt(p, along)][table.displayColAt(p, along)] = table.getId(p);
+            }
+        }
+        return view;
     }
 
-    public void setPrimaryPosition(int row, int col) {
-        this.primaryRow = row;
-        this.primaryCol = col;
+    public char getPrimaryPiece() { return PRIMARY_PIECE; }
+    public char getExit() { return EXIT; }
+    public int getExitRow() { return table.getDisplayExitRow(); }
+    public int getExitCol() { return table.getDisplayExitCol(); }
+
+    // Top-left cell of the primary piece, -1 once it has left the board
+    public int getPrimaryRow() {
+        if (!hasPrimaryPiece(table, offsets)) return -1;
+        int p = table.getPrimaryIndex();
+        int last = offsets[p] + table.getLength(p) - 1;
+        return Math.min(table.displayRowAt(p, offsets[p]), table.displayRowAt(p, last));
     }
 
-    public void clearPieces() {
-        this.pieces.clear();
+    public int getPrimaryCol() {
+        if (!hasPrimaryPiece(table, offsets)) return -1;
+        int p = table.getPrimaryIndex();
+        int last = offsets[p] + table.getLength(p) - 1;
+        return Math.min(table.displayColAt(p, offsets[p]), table.displayColAt(p, last));
     }
 
-    public void addPiecePosition(char piece, int row, int col) {
-        if (!pieces.containsKey(piece)) {
-            pieces.put(piece, new ArrayList<>());
+    // Read-only view of the cells of every piece by piece ID, in board order
+    public Map<Integer, List<int[]>> getPieces() {
+        Map<Integer, List<int[]>> view = new HashMap<>();
+        for (int p = 0; p < offsets.length; p++) {
+            if (offsets[p] < 0) continue;
+            // Mirroring reverses the lane of horizontal pieces
+            List<int[]> positions = new ArrayList<>();
+            boolean reversed = table.isMirrored() && table.isHorizontal(p);
+            for (int i = 0; i < table.getLength(p); i++) {
+                int along = offsets[p] + i;
+                int[] cell = {table.displayRowAt(p, along), table.displayColAt(p, along)};
+                positions.add(reversed ? 0 : positions.size(), cell);
+            }
+            view.put(table.getId(p), Collections.unmodifiableList(positions));
         }
-        pieces.get(piece).add(new int[]{row, col});
+        return Collections.unmodifiableMap(view);
     }
 
-    // Removes the primary piece ('P') from the board and pieces map
-    public void removePrimaryPiece() {
-        List<int[]> primaryPositions = pieces.get('P');
-        if (primaryPositions != null) {
-            for (int[] pos : primaryPositions) {
-                board[pos[0]][pos[1]] = '.';
+    // Mutable description of a puzzle while it is being read or edited. build() checks nothing
+    // itself (see RushHourIO) and turns the pieces into a shared PieceTable and its initial state.
+    // Cells and pieces are keyed by piece ID (see PieceIds), so a char is stored as its code.
+    // Not thread-safe; only the RushHourGame it builds is.
+    public static final class Builder {
+        private final int rows, cols;
+        private final int[][] board;
+        private final Map<Integer, List<int[]>> pieces = new HashMap<>();
+        private int exitRow, exitCol;
+        private int primaryRow, primaryCol;
+
+        public Builder(int rows, int cols) {
+            this.rows = rows;
+            this.cols = cols;
+            this.board = new int[rows][cols];
+        }
+
+        public int getRows() { return rows; }
+        public int getCols() { return cols; }
+
+        // The board being filled in, not a copy
+        public int[][] getBoard() { return board; }
+
+        public Map<Integer, List<int[]>> getPieces() { return pieces; }
+        public int getExitRow() { return exitRow; }
+        public int getExitCol() { return exitCol; }
+        public int getPrimaryRow() { return primaryRow; }
+        public int getPrimaryCol() { return primaryCol; }
+
+        public Builder setExitPosition(int row, int col) {
+            this.exitRow = row;
+            this.exitCol = col;
+            return this;
+        }
+
+        public Builder setPrimaryPosition(int row, int col) {
+            this.primaryRow = row;
+            this.primaryCol = col;
+            return this;
+        }
+
+        public Builder clearPieces() {
+            pieces.clear();
+            return this;
+        }
+
+        public Builder addPiecePosition(int piece, int row, int col) {
+            if (!pieces.containsKey(piece)) {
+                pieces.put(piece, new ArrayList<>());
             }
-            pieces.remove('P');
+            pieces.get(piece).add(new int[]{row, col});
+            return this;
+        }
+
+        // Static piece data is built once here and shared by every search state. The table
+        // normalizes the puzzle (primary piece horizontal, exit on the right); boards and
+        // actions are still reported in the orientation of the file
+        public RushHourGame build() {
+            return initial(PieceTable.build(rows, cols, exitRow, exitCol, pieces));
         }
     }
-}
\ No newline at end of file
+}
@@ -4,36 +4,52 @@ import java.io.*;
 import java.util.*;
 
 public class RushHourIO {
+    // Third word of the first line that switches to the token board format, see readTokenBoard
+    private static final String TOKEN_FORMAT = "tokens";
+
     public static RushHourGame loadGameFromFile(String filename) throws IOException {
         BufferedReader reader = new BufferedReader(new FileReader(filename));
 
         try {
             // Read dimensions
             String[] dimensions = reader.readLine().trim().split("\\s+");
-            if (dimensions.length != 2) {
-                throw new IOException("Invalid format: First line must contain two integers (rows cols)");
+            boolean tokenFormat = dimensions.length == 3 && dimensions[2].equals(TOKEN_FORMAT);
+            if (dimensions.length != 2 && !tokenFormat) {
+                throw new IOException("Invalid format: First line must contain two integers (rows cols), optionally followed by '" + TOKEN_FORMAT + "'");
             }
 
             int rows = Integer.parseInt(dimensions[0]);
             int cols = Integer.parseInt(dimensions[1]);
 
-            if (rows <= 0 || cols <= 0 || rows > 20 || cols > 20) {
-                throw new IOException("Invalid dimensions: Must be between 1-20");
+            int maxSize = PieceTable.MAX_BOARD_SIZE;
+            if (rows <= 0 || cols <= 0 || rows > maxSize || cols > maxSize) {
+                throw new IOException("Invalid dimensions: Must be between 1-" + maxSize);
             }
 
-            // Read number of pieces (excluding primary piece)
+            // Read number of pieces (excluding primary piece); every piece takes at least 2 cells
             String numPiecesStr = reader.readLine().trim();
             int numPieces = Integer.parseInt(numPiecesStr);
 
-            if (numPieces < 0 || numPieces > 50) {
-                throw new IOException("Invalid number of pieces: Must be between 0-50");
+            int maxPieces = Math.max(0, rows * cols / 2 - 1);
+            if (numPieces < 0 || numPieces > maxPieces) {
+                throw new IOException("Invalid number of pieces: Must be between 0-" + maxPieces);
             }
 
             // Create game instance
-            RushHourGame game = new RushHourGame(rows, cols);
-            char[][] board = game.getBoard();
+            RushHourGame.Builder game = new RushHourGame.Builder(rows, cols);
+            int[][] board = game.getBoard();
             boolean exitFound = false;
 
+            if (tokenFormat) {
+                List<String> allLines = new ArrayList<>();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    allLines.add(line);
+                }
+                readTokenBoard(game, allLines);
+                return finishGame(game, numPieces);
+            }
+
             // Detect top exit before reading the board
             String peekLine = reader.readLine();
             if (peekLine != null && peekLine.trim().length() == 1 && peekLine.trim().charAt(0) == 'K') {
@@ -132,24 +148,7 @@ public class RushHourIO {
                 throw new IOException("No exit 'K' found outside the board boundaries");
             }
 
-            // Validate and initialize game state
-            validateAndInitializeGame(game);
-
-            // Validate number of unique pieces (excluding 'P')
-            Set<Character> uniquePieces = new HashSet<>();
-            for (int i = 0; i < rows; i++) {
-                for (int j = 0; j < cols; j++) {
-                    char c = board[i][j];
-                    if (c != '.' && c != 'P') {
-                        uniquePieces.add(c);
-                    }
-                }
-            }
-            if (uniquePieces.size() != numPieces) {
-                throw new IOException("Number of unique pieces (excluding 'P') in board (" + uniquePieces.size() + ") does not match specified number (" + numPieces + ")");
-            }
-
-            return game;
+            return finishGame(game, numPieces);
 
         } catch (NumberFormatException e) {
             throw new IOException("Invalid number format in input file", e);
@@ -158,8 +157,102 @@ public class RushHourIO {
         }
     }
 
-    private static void validateAndInitializeGame(RushHourGame game) throws IOException {
-        char[][] board = game.getBoard();
+    // Token board: every cell is a word separated by spaces, "." for an empty cell, "P" for the
+    // primary piece and a positive number for every other vehicle, so a puzzle is not limited
+    // to the letters of the alphabet. A row may start or end with an extra "K" for a left or
+    // right exit; a top or bottom exit is a line of "." with one "K" above or below the board
+    private static void readTokenBoard(RushHourGame.Builder game, List<String> lines) throws IOException {
+        int rows = game.getRows();
+        int cols = game.getCols();
+        int[][] board = game.getBoard();
+        boolean exitFound = false;
+
+        // Trailing empty lines are allowed, like in the char format
+        int end = lines.size();
+        while (end > 0 && lines.get(end - 1).trim().isEmpty()) {
+            end--;
+        }
+
+        int first = 0;
+        if (end > 0 && end - first > rows) {
+            int exitCol = tokenExitColumn(lines.get(0), cols);
+            if (exitCol >= 0) {
+                game.setExitPosition(-1, exitCol);
+                exitFound = true;
+                first = 1;
+            }
+        }
+        if (end - first > rows) {
+            int exitCol = tokenExitColumn(lines.get(end - 1), cols);
+            if (exitCol < 0) {
+                throw new IOException("Extra non-empty line found after board: '" + lines.get(first + rows) + "'");
+            }
+            game.setExitPosition(rows, exitCol);
+            exitFound = true;
+            end--;
+        }
+        if (end - first != rows) {
+            throw new IOException("Number of board lines (" + (end - first) + ") does not match specified rows (" + rows + ")");
+        }
+
+        for (int i = 0; i < rows; i++) {
+            String[] tokens = lines.get(first + i).trim().split("\\s+");
+            int start = 0;
+            if (tokens.length == cols + 1 && tokens[0].equals("K")) {
+                game.setExitPosition(i, -1);
+                exitFound = true;
+                start = 1;
+            } else if (tokens.length == cols + 1 && tokens[cols].equals("K")) {
+                game.setExitPosition(i, cols);
+                exitFound = true;
+            } else if (tokens.length != cols) {
+                throw new IOException("Row " + (i + 1) + " has incorrect length: expected " + cols + " cells, got " + tokens.length);
+            }
+
+            for (int j = 0; j < cols; j++) {
+                board[i][j] = PieceIds.parseToken(tokens[start + j]);
+            }
+        }
+
+        if (!exitFound) {
+            throw new IOException("No exit 'K' found outside the board boundaries");
+        }
+    }
+
+    // Column of the only "K" in a top or bottom exit line of a token board, -1 if it is not one
+    private static int tokenExitColumn(String line, int cols) {
+        String[] tokens = line.trim().split("\\s+");
+        if (tokens.length != cols) return -1;
+
+        int exitCol = -1;
+        for (int j = 0; j < cols; j++) {
+            if (tokens[j].equals("K")) {
+                if (exitCol >= 0) return -1;
+                exitCol = j;
+            } else if (!tokens[j].equals(".")) {
+                return -1;
+            }
+        }
+        return exitCol;
+    }
+
+    // Checks shared by both formats once the board is filled in
+    private static RushHourGame finishGame(RushHourGame.Builder game, int numPieces) throws IOException {
+        // Validate and initialize game state
+        validateAndInitializeGame(game);
+
+        // Validate number of unique pieces (excluding 'P')
+        Set<Integer> uniquePieces = new HashSet<>(game.getPieces().keySet());
+        uniquePieces.remove(PieceIds.PRIMARY);
+        if (uniquePieces.size() != numPieces) {
+            throw new IOException("Number of unique pieces (excluding 'P') in board (" + uniquePieces.size() + ") does not match specified number (" + numPieces + ")");
+        }
+
+        return game.build();
+    }
+
+    private static void validateAndInitializeGame(RushHourGame.Builder game) throws IOException {
+        int[][] board = game.getBoard();
         int rows = game.getRows();
         int cols = game.getCols();
 
@@ -169,9 +262,9 @@ public class RushHourIO {
         // Scan board and categorize pieces
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
-                char c = board[i][j];
+                int c = board[i][j];
 
-                if (c == 'P') {
+                if (c == PieceIds.PRIMARY) {
                     foundPrimary = true;
                     game.addPiecePosition(c, i, j);
                     if (game.getPrimaryRow() == 0 && game.getPrimaryCol() == 0) {
@@ -197,14 +290,14 @@ public class RushHourIO {
         }
 
         // Validate primary piece
-        List<int[]> primaryPositions = game.getPieces().get('P');
+        List<int[]> primaryPositions = game.getPieces().get(PieceIds.PRIMARY);
         if (primaryPositions == null || primaryPositions.size() < 2) {
             throw new IOException("Primary piece must occupy at least 2 cells");
         }
 
         // Validate piece continuity and orientation for all pieces
-        for (Map.Entry<Character, List<int[]>> entry : game.getPieces().entrySet()) {
-            char piece = entry.getKey();
+        for (Map.Entry<Integer, List<int[]>> entry : game.getPieces().entrySet()) {
+            String piece = PieceIds.label(entry.getKey());
             List<int[]> positions = entry.getValue();
 
             if (positions.size() < 2) {
@@ -251,8 +344,8 @@ public class RushHourIO {
         }
     }
 
-    private static boolean checkPrimaryOrientation(RushHourGame game) {
-        List<int[]> primaryPositions = game.getPieces().get('P');
+    private static boolean checkPrimaryOrientation(RushHourGame.Builder game) {
+        List<int[]> primaryPositions = game.getPieces().get(PieceIds.PRIMARY);
         if (primaryPositions.size() < 2) return true; 
         
         return primaryPositions.get(0)[0] == primaryPositions.get(1)[0];
@@ -413,18 +506,19 @@ public class RushHourIO {
         Scanner scanner = new Scanner(System.in);
         int choice = 0;
 
-        while (choice < 1 || choice > 4) {
+        while (choice < 1 || choice > 5) {
             System.out.println("\nSelect algorithm:");
             System.out.println("1. UCS (Uniform Cost Search)");
             System.out.println("2. GBFS (Greedy Best First Search)");
             System.out.println("3. A* (A-Star)");
             System.out.println("4. IDA* (Iterative Deepening A*)");
-            System.out.print("Choice (1-4): ");
+            System.out.println("5. Bidirectional BFS");
+            System.out.print("Choice (1-5): ");
 
             try {
                 choice = Integer.parseInt(scanner.nextLine().trim());
-                if (choice < 1 || choice > 4) {
-                    System.out.println("Invalid choice. Please enter 1-4.");
+                if (choice < 1 || choice > 5) {
+                    System.out.println("Invalid choice. Please enter 1-5.");
                 }
             } catch (NumberFormatException e) {
                 System.out.println("Invalid input. Please enter a number.");
@@ -458,6 +552,54 @@ public class RushHourIO {
         return choice;
     }
 
+    // Asks for one of the given SearchAlgorithm.FRONTIER_* types and returns it
+    public static int getFrontierChoice(int... frontierTypes) {
+        Scanner scanner = new Scanner(System.in);
+        int maxChoice = frontierTypes.length;
+        int choice = 0;
+
+        while (choice < 1 || choice > maxChoice) {
+            System.out.println("\nSelect frontier:");
+            for (int i = 0; i < frontierTypes.length; i++) {
+                System.out.println((i + 1) + ". " + SearchAlgorithm.getFrontierName(frontierTypes[i]));
+            }
+            System.out.print("Choice (1-" + maxChoice + "): ");
+
+            try {
+                choice = Integer.parseInt(scanner.nextLine().trim());
+                if (choice < 1 || choice > maxChoice) {
+                    System.out.println("Invalid choice. Please enter 1-" + maxChoice + ".");
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid input. Please enter a number.");
+            }
+        }
+
+        return frontierTypes[choice - 1];
+    }
+
+    // Asks for the bitstate search memory in megabytes, seen bits and nodes together;
+    // 0 keeps exact duplicate detection and no memory limit
+    public static int getBitstateMegabytes() {
+        Scanner scanner = new Scanner(System.in);
+        int megabytes = -1;
+
+        while (megabytes < 0) {
+            System.out.print("Bitstate memory in MB for seen bits and nodes (0 = exact, no limit): ");
+
+            try {
+                megabytes = Integer.parseInt(scanner.nextLine().trim());
+                if (megabytes < 0) {
+                    System.out.println("Invalid size. Please enter 0 or more.");
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid input. Please enter a number.");
+            }
+        }
+
+        return megabytes;
+    }
+
     public static boolean isValidFile(String filename) {
         File file = new File(filename);
         return file.exists() && file.isFile() && file.canRead();
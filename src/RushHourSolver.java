@@ -4,10 +4,15 @@ import java.io.IOException;
 import java.util.*;
 
 public class RushHourSolver {
+    private static final int HASH_STATISTICS_LIMIT = 1_000_000;
+
     private RushHourGame initialGame;
     private Map<String, SearchAlgorithm> algorithms;
     private Map<String, Map<String, Object>> results;
 
+    // Shared by the solves of runAllAlgorithms and solve(), which run one after another
+    private final SolverContext context = new SolverContext();
+
     public RushHourSolver() {
         this.algorithms = new HashMap<>();
         this.results = new HashMap<>();
@@ -74,7 +79,8 @@ public class RushHourSolver {
             System.out.println("3. Display current board");
             System.out.println("4. Load new test case");
             System.out.println("5. View previous results");
-            System.out.println("6. Exit");
+            System.out.println("6. Hash key statistics");
+            System.out.println("7. Exit");
             System.out.print("Choice: ");
 
             try {
@@ -97,10 +103,13 @@ public class RushHourSolver {
                         displayPreviousResults();
                         break;
                     case 6:
+                        displayHashStatistics();
+                        break;
+                    case 7:
                         continueRunning = false;
                         break;
                     default:
-                        System.out.println("Invalid choice. Please enter 1-6.");
+                        System.out.println("Invalid choice. Please enter 1-7.");
                 }
             } catch (NumberFormatException e) {
                 System.out.println("Invalid input. Please enter a number.");
@@ -128,6 +137,32 @@ public class RushHourSolver {
             setAlgorithmHeuristic(algorithm, heuristicChoice);
         }
 
+        // Memory-lean mode for UCS and A*, which replaces the frontier choice
+        if (algorithm instanceof UCS || algorithm instanceof AStar) {
+            String input = RushHourIO.getUserInput("Memory-lean mode (no parent pointers)? (y/n): ");
+            algorithm.setMemoryLean(input.toLowerCase().startsWith("y"));
+        }
+
+        // Get frontier choice for the best-first algorithms (IDA* keeps no frontier, the
+        // memory-lean engines and the bidirectional BFS have their own)
+        if (algorithm instanceof UCS && !algorithm.isMemoryLean()) {
+            algorithm.setFrontierType(RushHourIO.getFrontierChoice(SearchAlgorithm.FRONTIER_LAYERS,
+                    SearchAlgorithm.FRONTIER_HEAP, SearchAlgorithm.FRONTIER_BUCKET));
+        } else if (!(algorithm instanceof IDAStar) && !(algorithm instanceof BidirectionalBFS)
+                && !algorithm.isMemoryLean()) {
+            algorithm.setFrontierType(RushHourIO.getFrontierChoice(SearchAlgorithm.FRONTIER_HEAP,
+                    SearchAlgorithm.FRONTIER_BUCKET, SearchAlgorithm.FRONTIER_POOL));
+        }
+
+        // Bitstate hashing for GBFS and the breadth-first UCS: a fixed-size bit array instead
+        // of the exact seen set, which may prune unseen states, and a node budget from the same
+        // memory that stops the search when it runs out
+        if (algorithm instanceof GBFS || (algorithm instanceof UCS && !algorithm.isMemoryLean()
+                && algorithm.getFrontierType() == SearchAlgorithm.FRONTIER_LAYERS)) {
+            int megabytes = RushHourIO.getBitstateMegabytes();
+            algorithm.setBitstate((long) megabytes << 20, 3);
+        }
+
         // Run algorithm
         System.out.println("\nRunning " + algorithm.getAlgorithmName() + "...");
         runAlgorithm(algorithm);
@@ -150,42 +185,55 @@ public class RushHourSolver {
         // Run UCS
         System.out.println("\n1. Running UCS...");
         UCS ucs = new UCS();
+        ucs.setContext(context);
         runAlgorithm(ucs);
         results.put("UCS", ucs.getStatistics());
 
         // Run both heuristics for GBFS
         System.out.println("\n2. Running GBFS with H1...");
         GBFS gbfs1 = new GBFS(1);
+        gbfs1.setContext(context);
         runAlgorithm(gbfs1);
         results.put("GBFS-H1", gbfs1.getStatistics());
 
         System.out.println("\n3. Running GBFS with H2...");
         GBFS gbfs2 = new GBFS(2);
+        gbfs2.setContext(context);
         runAlgorithm(gbfs2);
         results.put("GBFS-H2", gbfs2.getStatistics());
 
         // Run both heuristics for A*
         System.out.println("\n4. Running A* with H1...");
         AStar aStar1 = new AStar(1);
+        aStar1.setContext(context);
         runAlgorithm(aStar1);
         results.put("A*-H1", aStar1.getStatistics());
 
         System.out.println("\n5. Running A* with H2...");
         AStar aStar2 = new AStar(2);
+        aStar2.setContext(context);
         runAlgorithm(aStar2);
         results.put("A*-H2", aStar2.getStatistics());
 
         // Run both heuristics for IDA*
         System.out.println("\n6. Running IDA* with H1...");
         IDAStar idaStar1 = new IDAStar(1);
+        idaStar1.setContext(context);
         runAlgorithm(idaStar1);
         results.put("IDA*-H1", idaStar1.getStatistics());
 
         System.out.println("\n7. Running IDA* with H2...");
         IDAStar idaStar2 = new IDAStar(2);
+        idaStar2.setContext(context);
         runAlgorithm(idaStar2);
         results.put("IDA*-H2", idaStar2.getStatistics());
 
+        System.out.println("\n8. Running Bidirectional BFS...");
+        BidirectionalBFS bidirectional = new BidirectionalBFS();
+        bidirectional.setContext(context);
+        runAlgorithm(bidirectional);
+        results.put("BiBFS", bidirectional.getStatistics());
+
         // Display comparison
         RushHourIO.printComparisonTable(results);
 
@@ -196,11 +244,14 @@ public class RushHourSolver {
     private void runAlgorithm(SearchAlgorithm algorithm) {
         long startTime = System.currentTimeMillis();
 
-        // Create a copy of the initial game for the algorithm
-        RushHourGame gameCopy = new RushHourGame(initialGame);
-
-        // Solve the puzzle
-        List<RushHourGame> solution = algorithm.solve(gameCopy);
+        // Solve the puzzle; states are immutable, so the initial game is shared as is
+        List<RushHourGame> solution;
+        try {
+            solution = algorithm.solve(initialGame);
+        } catch (OffHeapBudgetExceededException e) {
+            System.out.println("Search stopped: " + e.getMessage());
+            return;
+        }
 
         // Record statistics
         System.out.println("Algorithm: " + algorithm.getAlgorithmName());
@@ -212,20 +263,23 @@ public class RushHourSolver {
         } else {
             System.out.println("No solution found.");
         }
+        if (algorithm.getBitstateFalsePositiveRate() > 0) {
+            // Approximate duplicate detection may have pruned states on the way
+            System.out.printf("Bitstate hashing: estimated false positive probability %.6f%n",
+                    algorithm.getBitstateFalsePositiveRate());
+        }
+        if (algorithm.isBitstateLimitReached()) {
+            System.out.println("Search stopped: the bitstate memory has no room for more nodes");
+        }
     }
 
     private void displayResults(SearchAlgorithm algorithm) {
         if (algorithm.getSolution() != null && !algorithm.getSolution().isEmpty()) {
-            // Prepare solution and actions with final step
-            List<RushHourGame> solutionWithExit = new ArrayList<>(algorithm.getSolution());
-            List<String> actionsWithExit = new ArrayList<>(algorithm.getSolutionActions());
-            RushHourGame finalState = new RushHourGame(solutionWithExit.get(solutionWithExit.size() - 1));
-            finalState.removePrimaryPiece();
-            solutionWithExit.add(finalState);
-            actionsWithExit.add("EXIT");
+            // Solution and actions with the final exit step
+            Solution solutionWithExit = algorithm.getSolution().withExit();
 
             System.out.println("\n=== Detailed Solution ===");
-            RushHourIO.writeSolutionToConsole(solutionWithExit, actionsWithExit, algorithm);
+            RushHourIO.writeSolutionToConsole(solutionWithExit, solutionWithExit.getActions(), algorithm);
 
             // Additional analysis for specific algorithms
             if (algorithm instanceof AStar) {
@@ -256,6 +310,15 @@ public class RushHourSolver {
                 ", Col " + (initialGame.getExitCol() + 1));
     }
 
+    private void displayHashStatistics() {
+        if (initialGame == null) {
+            System.out.println("No game loaded. Please load a test case first.");
+            return;
+        }
+
+        System.out.println("\nChecking Zobrist keys on up to " + HASH_STATISTICS_LIMIT + " reachable states...");
+        System.out.println(ZobristStatistics.measure(initialGame, HASH_STATISTICS_LIMIT));
+    }
 
     private void loadNewTestCase() {
         try {
@@ -295,14 +358,16 @@ public class RushHourSolver {
                 return new AStar(1);
             case 4:
                 return new IDAStar(1);
+            case 5:
+                return new BidirectionalBFS();
             default:
                 return new UCS();
         }
     }
 
     private boolean requiresHeuristic(int algorithmChoice) {
-        // UCS doesn't use heuristic, others do
-        return algorithmChoice != 1;
+        // UCS and the bidirectional BFS don't use heuristic, others do
+        return algorithmChoice != 1 && algorithmChoice != 5;
     }
 
     private void setAlgorithmHeuristic(SearchAlgorithm algorithm, int heuristicChoice) {
@@ -326,14 +391,9 @@ public class RushHourSolver {
             try {
                 String filenameInputted = RushHourIO.getUserInput("Enter filename (without extension): ");
                 String filename = "output/" + filenameInputted + ".txt";
-                // Prepare solution and actions with final step
-                List<RushHourGame> solutionWithExit = new ArrayList<>(algorithm.getSolution());
-                List<String> actionsWithExit = new ArrayList<>(algorithm.getSolutionActions());
-                RushHourGame finalState = new RushHourGame(solutionWithExit.get(solutionWithExit.size() - 1));
-                finalState.removePrimaryPiece();
-                solutionWithExit.add(finalState);
-                actionsWithExit.add("EXIT");
-                RushHourIO.writeSolutionToFile(solutionWithExit, actionsWithExit, algorithm, filename);
+                // Solution and actions with the final exit step
+                Solution solutionWithExit = algorithm.getSolution().withExit();
+                RushHourIO.writeSolutionToFile(solutionWithExit, solutionWithExit.getActions(), algorithm, filename);
                 System.out.println("Solution saved to: " + filename);
             } catch (IOException e) {
                 System.err.println("Error saving file: " + e.getMessage());
@@ -375,12 +435,15 @@ public class RushHourSolver {
             case "IDA*":
                 algorithm = new IDAStar(heuristicType);
                 break;
+            case "BIBFS":
+                algorithm = new BidirectionalBFS();
+                break;
             default:
                 throw new IllegalArgumentException("Unknown algorithm: " + algorithmType);
         }
 
-        RushHourGame gameCopy = new RushHourGame(initialGame);
-        return algorithm.solve(gameCopy);
+        algorithm.setContext(context);
+        return algorithm.solve(initialGame);
     }
 
     public Map<String, Map<String, Object>> getResults() {
@@ -1,12 +1,46 @@
 package src;
 
 import java.util.*;
+import java.util.function.ToIntFunction;
 
 
 public abstract class SearchAlgorithm {
+    // Frontier types of the best-first engines (UCS, GBFS, A*). FIFO layers only apply to
+    // UCS and the node pool only to GBFS and A*; otherwise the engine falls back to the heap
+    public static final int FRONTIER_HEAP = 1;
+    public static final int FRONTIER_BUCKET = 2;
+    public static final int FRONTIER_LAYERS = 3;
+    public static final int FRONTIER_POOL = 4;
+
+    protected int frontierType = FRONTIER_HEAP;
+
+    // Memory-lean mode (UCS and A*): only the depth of every reached state is kept, no parent
+    // pointers, and the path is recovered afterwards. It takes precedence over the frontier type
+    protected boolean memoryLean;
+
+    // Off-heap mode: with a budget above 0 the explored / seen sets and the state maps of the
+    // engines live in direct buffers outside the GC heap (see OffHeapKeySet), start with room
+    // for offHeapCapacity states and never grow past offHeapBudget bytes each, resizes included
+    protected long offHeapBudget;
+    protected int offHeapCapacity;
+
+    // Bitstate hashing (GBFS and breadth-first UCS): with a size above 0 the search keeps to
+    // about bitstateBytes. The seen set is a BitstateSet of at most half of it, approximate and
+    // incomplete, and the nodes get the rest: a search that would create more nodes than fit
+    // stops without a solution (see bitstateNodeLimit)
+    protected long bitstateBytes;
+    protected int bitstateHashes = 3;
+    protected BitstateSet bitstateSet;
+    protected boolean bitstateLimitReached;
+
+    // A SearchNode with its RushHourGame, measured at about 200 bytes on the sample puzzles
+    protected static final int SEARCH_NODE_BYTES = 200;
+
+    // Structures reused across solves (see SolverContext), null to allocate them for every solve
+    protected SolverContext context;
     protected int nodesVisited;
     protected long executionTime;
-    protected List<RushHourGame> solution;
+    protected Solution solution;
     protected List<String> solutionActions;
 
     public abstract List<RushHourGame> solve(RushHourGame initial);
@@ -20,7 +54,7 @@ public abstract class SearchAlgorithm {
         return executionTime;
     }
 
-    public List<RushHourGame> getSolution() {
+    public Solution getSolution() {
         return solution;
     }
 
@@ -28,7 +62,156 @@ public abstract class SearchAlgorithm {
         return solutionActions;
     }
 
+    public int getFrontierType() {
+        return frontierType;
+    }
+
+    public void setFrontierType(int frontierType) {
+        this.frontierType = frontierType;
+    }
+
+    public String getFrontierName() {
+        return getFrontierName(frontierType);
+    }
+
+    public boolean isMemoryLean() {
+        return memoryLean;
+    }
+
+    public void setMemoryLean(boolean memoryLean) {
+        this.memoryLean = memoryLean;
+    }
+
+    public long getOffHeapBudget() {
+        return offHeapBudget;
+    }
+
+    public int getOffHeapCapacity() {
+        return offHeapCapacity;
+    }
+
+    // A budget of 0 keeps the sets on the Java heap
+    public void setOffHeap(long budgetBytes, int expectedStates) {
+        this.offHeapBudget = budgetBytes;
+        this.offHeapCapacity = expectedStates;
+    }
+
+    public SolverContext getContext() {
+        return context;
+    }
+
+    public void setContext(SolverContext context) {
+        this.context = context;
+    }
+
+    public long getBitstateBytes() {
+        return bitstateBytes;
+    }
+
+    // A size of 0 turns bitstate hashing off
+    public void setBitstate(long maxBytes, int hashes) {
+        this.bitstateBytes = maxBytes;
+        this.bitstateHashes = hashes;
+    }
+
+    public boolean isBitstate() {
+        return bitstateBytes > 0;
+    }
+
+    // Estimated false positive probability of the last bitstate search, 0 for exact searches
+    public double getBitstateFalsePositiveRate() {
+        return bitstateSet != null ? bitstateSet.falsePositiveRate() : 0.0;
+    }
+
+    // Whether the last bitstate search ran out of room for nodes before it finished
+    public boolean isBitstateLimitReached() {
+        return bitstateLimitReached;
+    }
+
+    public static String getFrontierName(int frontierType) {
+        switch (frontierType) {
+            case FRONTIER_HEAP:
+                return "Binary Heap";
+            case FRONTIER_BUCKET:
+                return "Bucket Queue (LIFO ties)";
+            case FRONTIER_LAYERS:
+                return "FIFO Layers (BFS)";
+            case FRONTIER_POOL:
+                return "Node Pool (Binary Heap)";
+            default:
+                return "Unknown";
+        }
+    }
+
+    // Frontier of the selected type: a heap ordered by 'order', or a bucket queue over
+    // 'priority', which has to be a small non-negative integer (g, h or f)
+    protected Frontier createFrontier(int keyWords, Comparator<SearchNode> order, ToIntFunction<SearchNode> priority) {
+        if (context != null) {
+            return context.frontier(frontierType, keyWords, order, priority);
+        }
+        if (frontierType == FRONTIER_BUCKET) {
+            return new BucketQueue(keyWords, priority);
+        }
+        return new IndexedNodeHeap(keyWords, order);
+    }
+
+    // Set of packed state keys for explored / seen states, off the heap when a budget is set
+    protected KeySet createKeySet(int keyWords) {
+        if (offHeapBudget > 0) {
+            return new OffHeapKeySet(keyWords, offHeapCapacity, offHeapBudget);
+        }
+        return context != null ? context.keySet(keyWords) : new PackedKeySet(keyWords);
+    }
+
+    // Map from packed state keys to ints (depths, costs, node indices), off the heap likewise
+    protected KeyIntMap createKeyIntMap(int keyWords) {
+        if (offHeapBudget > 0) {
+            return new OffHeapKeyIntMap(keyWords, offHeapCapacity, offHeapBudget);
+        }
+        return context != null ? context.keyIntMap(keyWords) : new PackedKeyIntMap(keyWords);
+    }
+
+    // Node pool of the pooled engines with its heap, ordered by f = g + h or by h alone
+    protected NodePool createNodePool(int keyWords) {
+        return context != null ? context.nodePool(keyWords) : new NodePool(keyWords);
+    }
+
+    protected NodePoolHeap createNodePoolHeap(NodePool pool, boolean withCost) {
+        return context != null ? context.nodePoolHeap(withCost) : new NodePoolHeap(pool, withCost);
+    }
+
+    protected PackedKeyHeap createPackedKeyHeap(int keyWords) {
+        return context != null ? context.packedKeyHeap(keyWords) : new PackedKeyHeap(keyWords);
+    }
+
+    // Rank bitmap / depth map of the puzzle's states, null when its ranks are not dense
+    protected RankBitSet createRankBitSet(PieceTable table) {
+        return context != null ? context.rankBitSet(table) : RankBitSet.forTable(table);
+    }
+
+    protected RankDepthMap createRankDepthMap(PieceTable table) {
+        return context != null ? context.rankDepthMap(table) : RankDepthMap.forTable(table);
+    }
+
+    // Seen set of GBFS and the breadth-first UCS: a BitstateSet when bitstate hashing is on
+    protected KeySet createSeenSet(int keyWords) {
+        if (bitstateBytes > 0) {
+            bitstateSet = new BitstateSet(Math.max(8, bitstateBytes / 2), bitstateHashes);
+            return bitstateSet;
+        }
+        return createKeySet(keyWords);
+    }
+
+    // Nodes of about nodeBytes each that fit in what the bitstate seen set leaves of
+    // bitstateBytes; no limit for exact searches. Call after createSeenSet
+    protected long bitstateNodeLimit(long nodeBytes) {
+        if (bitstateSet == null) return Long.MAX_VALUE;
+        return (bitstateBytes - bitstateSet.memoryUsage()) / nodeBytes;
+    }
+
     protected void resetCounters() {
+        bitstateSet = null;
+        bitstateLimitReached = false;
         nodesVisited = 0;
         executionTime = 0;
         solution = null;
@@ -36,38 +219,93 @@ public abstract class SearchAlgorithm {
     }
 
 
-    protected List<RushHourGame> buildSolution(SearchNode goalNode) {
-        List<RushHourGame> path = new ArrayList<>();
-        List<String> actions = new ArrayList<>();
-        SearchNode current = goalNode;
+    // Path to a search node: its moves are read back to front along the parent pointers
+    protected Solution buildSolution(SearchNode goalNode) {
+        int length = 0;
+        for (SearchNode node = goalNode; node.parent != null; node = node.parent) {
+            length++;
+        }
 
-        while (current != null) {
-            path.add(0, current.state);
-            if (current.action != null && !current.action.equals("Initial")) {
-                actions.add(0, current.action);
-            }
-            current = current.parent;
+        int[] moves = new int[length];
+        SearchNode node = goalNode;
+        for (int i = length - 1; i >= 0; i--) {
+            moves[i] = node.move;
+            node = node.parent;
+        }
+        return buildSolution(node.state, moves);
+    }
+
+    // Path to a NodePool node, read the same way along the parent indices
+    protected Solution buildSolution(NodePool pool, int goalNode, RushHourGame initial) {
+        int length = 0;
+        for (int node = goalNode; pool.getParent(node) != NodePool.NONE; node = pool.getParent(node)) {
+            length++;
+        }
+
+        int[] moves = new int[length];
+        int node = goalNode;
+        for (int i = length - 1; i >= 0; i--) {
+            moves[i] = pool.getMove(node);
+            node = pool.getParent(node);
         }
+        return buildSolution(initial, moves);
+    }
 
-        solutionActions = actions;
+    protected Solution buildSolution(RushHourGame initial, int[] moves) {
+        Solution path = new Solution(initial, moves);
+        solutionActions = path.getActions();
         return path;
     }
 
+    // Path recovery for searches that keep no parent pointers. Moves are reversible and cost 1,
+    // so every state reached at depth k > 0 has a neighbour that was reached at depth k - 1;
+    // 'depth' gives the recorded depth of a state (modulo 'modulus' when it is not 0, -1 when
+    // the state was not reached) and the path is walked back from the goal through its neighbours
+    protected Solution recoverSolution(RushHourGame goal, int goalDepth,
+                                       ToIntFunction<RushHourGame> depth, int modulus) {
+        int[] moves = new int[goalDepth];
+        RushHourGame state = goal;
+        MoveCursor neighbours = new MoveCursor();
+        for (int k = goalDepth; k > 0; k--) {
+            int wanted = modulus > 0 ? (k - 1) % modulus : k - 1;
+            RushHourGame previous = null;
+            for (neighbours.reset(state); neighbours.next(); ) {
+                RushHourGame candidate = neighbours.child();
+                if (depth.applyAsInt(candidate) == wanted) {
+                    // The move back from the predecessor is the reverse of this one
+                    moves[k - 1] = MoveCursor.reverse(neighbours.move());
+                    previous = candidate;
+                    break;
+                }
+            }
+            if (previous == null) {
+                throw new IllegalStateException("No predecessor recorded at depth " + (k - 1));
+            }
+            state = previous;
+        }
+        return buildSolution(state, moves);
+    }
+
     protected String getAction(RushHourGame from, RushHourGame to) {
+    if (from.getPieceTable() == to.getPieceTable()) {
+        return from.getMoveAction(to);
+    }
+
     // Find which piece moved
-    for (char piece : from.getPieces().keySet()) {
+    for (int piece : from.getPieces().keySet()) {
+        String label = PieceIds.label(piece);
         List<int[]> fromPos = from.getPieces().get(piece);
         List<int[]> toPos = to.getPieces().get(piece);
         
         // Handle case where piece might have exited (toPos could be null or different size)
         if (toPos == null) {
             // Piece has completely exited the board (only primary piece can do this)
-            if (piece == 'P') {
+            if (piece == PieceIds.PRIMARY) {
                 // Determine exit direction based on exit position
                 if (to.getExitCol() == to.getCols() && to.getExitRow() == from.getPrimaryRow()) {
-                    return piece + "-kanan"; // Exited to the right
+                    return label + "-kanan"; // Exited to the right
                 } else if (to.getExitRow() == to.getRows() && to.getExitCol() == from.getPrimaryCol()) {
-                    return piece + "-bawah"; // Exited down
+                    return label + "-bawah"; // Exited down
                 }
                 // Add more exit directions if needed
             }
@@ -76,15 +314,15 @@ public abstract class SearchAlgorithm {
         
         if (fromPos.size() != toPos.size()) {
             // Size difference might indicate partial exit or other issue
-            if (piece == 'P' && toPos.size() < fromPos.size()) {
+            if (piece == PieceIds.PRIMARY && toPos.size() < fromPos.size()) {
                 // Primary piece is partially exiting
                 // Determine direction based on remaining positions
                 if (fromPos.get(0)[0] == toPos.get(0)[0]) {
                     // Horizontal movement
-                    return from.getExitCol() > from.getPrimaryCol() ? piece + "-kanan" : piece + "-kiri";
+                    return from.getExitCol() > from.getPrimaryCol() ? label + "-kanan" : label + "-kiri";
                 } else {
                     // Vertical movement  
-                    return from.getExitRow() > from.getPrimaryRow() ? piece + "-bawah" : piece + "-atas";
+                    return from.getExitRow() > from.getPrimaryRow() ? label + "-bawah" : label + "-atas";
                 }
             }
             continue;
@@ -106,16 +344,16 @@ public abstract class SearchAlgorithm {
             if (oldPos[0] != newPos[0]) {
                 // Vertical movement
                 if (newPos[0] > oldPos[0]) {
-                    return piece + "-bawah";
+                    return label + "-bawah";
                 } else {
-                    return piece + "-atas";
+                    return label + "-atas";
                 }
             } else {
                 // Horizontal movement
                 if (newPos[1] > oldPos[1]) {
-                    return piece + "-kanan";
+                    return label + "-kanan";
                 } else {
-                    return piece + "-kiri";
+                    return label + "-kiri";
                 }
             }
         }
@@ -177,15 +415,26 @@ class SearchNode implements Comparable<SearchNode> {
     public int g; // Cost from start
     public int h; // Heuristic value
     public int f; // Total cost (g + h)
-    public String action; // Action taken to reach this state
+    public int move; // Move from the parent's state (see MoveCursor), NO_MOVE for the root
 
-    public SearchNode(RushHourGame state, SearchNode parent, int g, int h, String action) {
+    public static final int NO_MOVE = -1;
+
+    public SearchNode(RushHourGame state, SearchNode parent, int g, int h, int move) {
         this.state = state;
         this.parent = parent;
         this.g = g;
         this.h = h;
         this.f = g + h;
-        this.action = action;
+        this.move = move;
+    }
+
+    // Action label of the move that reached this node, e.g. "A-kanan"; only built on request,
+    // since almost no generated node ends up on the solution path
+    public String getAction() {
+        if (parent == null || move == NO_MOVE) {
+            return "Initial";
+        }
+        return parent.state.getMoveAction(move);
     }
 
     @Override
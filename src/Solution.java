@@ -0,0 +1,121 @@
+package src;
+
+import java.util.AbstractList;
+import java.util.List;
+
+// A solution path kept as its initial state plus the int move of every step (see MoveCursor),
+// 4 bytes per step instead of a full board. Boards are built on demand: every
+// CHECKPOINT_INTERVAL-th board is kept once it has been reached, get(i) replays at most
+// CHECKPOINT_INTERVAL - 1 moves from the checkpoint below i, and walking the boards in order
+// costs one move per step. Being a List of boards, a Solution goes wherever the old lists of
+// boards went; withExit() adds the frame after the primary piece has driven out.
+public final class Solution extends AbstractList<RushHourGame> {
+    private static final int CHECKPOINT_INTERVAL = 64;
+    private static final String EXIT_ACTION = "EXIT";
+
+    private final RushHourGame initial;
+    private final int[] moves;
+    private final boolean exitFrame;
+    private final RushHourGame[] checkpoints;   // board of step c * CHECKPOINT_INTERVAL, once built
+
+    // Last board built, so in-order walks only replay one move per step
+    private int lastStep = -1;
+    private RushHourGame last;
+
+    public Solution(RushHourGame initial, int[] moves) {
+        this(initial, moves.clone(), false, new RushHourGame[moves.length / CHECKPOINT_INTERVAL + 1]);
+        checkpoints[0] = initial;
+    }
+
+    private Solution(RushHourGame initial, int[] moves, boolean exitFrame, RushHourGame[] checkpoints) {
+        this.initial = initial;
+        this.moves = moves;
+        this.exitFrame = exitFrame;
+        this.checkpoints = checkpoints;
+    }
+
+    // The same path followed by the board without the primary piece, and "EXIT" as last action
+    public Solution withExit() {
+        return exitFrame ? this : new Solution(initial, moves, true, checkpoints);
+    }
+
+    public RushHourGame getInitialState() {
+        return initial;
+    }
+
+    // Number of moves on the path (the exit frame is not a move)
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    public int getMove(int step) {
+        return moves[step];
+    }
+
+    // Action labels of the steps, e.g. "A-kanan", built when read
+    public List<String> getActions() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (exitFrame && index == moves.length) {
+                    return EXIT_ACTION;
+                }
+                // Labels only depend on the piece and direction, not on the board
+                return initial.getMoveAction(moves[index]);
+            }
+
+            @Override
+            public int size() {
+                return moves.length + (exitFrame ? 1 : 0);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return moves.length + 1 + (exitFrame ? 1 : 0);
+    }
+
+    @Override
+    public RushHourGame get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        if (index > moves.length) {
+            return board(moves.length).withoutPrimaryPiece();
+        }
+        return board(index);
+    }
+
+    // The GUI reads a solution from the event thread after a worker built it
+    private synchronized RushHourGame board(int step) {
+        if (step == lastStep) {
+            return last;
+        }
+
+        int from;
+        RushHourGame state;
+        if (lastStep >= 0 && lastStep < step && step - lastStep < CHECKPOINT_INTERVAL) {
+            from = lastStep;
+            state = last;
+        } else {
+            int c = step / CHECKPOINT_INTERVAL;
+            while (checkpoints[c] == null) {
+                c--;
+            }
+            from = c * CHECKPOINT_INTERVAL;
+            state = checkpoints[c];
+        }
+
+        for (int i = from; i < step; i++) {
+            state = state.successor(moves[i]);
+            if ((i + 1) % CHECKPOINT_INTERVAL == 0) {
+                checkpoints[(i + 1) / CHECKPOINT_INTERVAL] = state;
+            }
+        }
+
+        lastStep = step;
+        last = state;
+        return state;
+    }
+}
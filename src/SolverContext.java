@@ -0,0 +1,178 @@
+package src;
+
+import java.util.Comparator;
+import java.util.function.ToIntFunction;
+
+// Search structures kept across consecutive solves, for batch runs that solve many puzzles in
+// a row. An engine with a context (see SearchAlgorithm.setContext) borrows its frontier, key
+// tables, node pool and rank bitmaps from here; they are cleared instead of reallocated, so
+// their arrays, hash tables and pool chunks are reused. Structures sized by key words are kept
+// while the puzzles have keys of the same width, rank bitmaps while the rank space fits, which
+// both hold for puzzles of the same geometry. A context serves one solve at a time: borrowing
+// a structure again hands out the same object, and a node pool heap belongs to the last pool.
+public final class SolverContext {
+    // Structures holding more than this after a solve are dropped instead of cleared, so one
+    // large search does not make every later one clear (and keep) its large tables
+    public static final long DEFAULT_MAX_RETAINED_BYTES = 256L << 20;
+
+    private final long maxRetainedBytes;
+    private int keyWords;
+
+    private IndexedNodeHeap heap;
+    private BucketQueue bucketQueue;
+    private PackedKeySet keySet;
+    private PackedKeyIntMap keyIntMap;
+    private NodePool nodePool;
+    private NodePoolHeap nodePoolHeap;        // over nodePool, ordered by h
+    private NodePoolHeap costNodePoolHeap;    // over nodePool, ordered by f
+    private PackedKeyHeap packedKeyHeap;
+    private RankBitSet rankBitSet;
+    private RankDepthMap rankDepthMap;
+
+    private int reuses;
+
+    public SolverContext() {
+        this(DEFAULT_MAX_RETAINED_BYTES);
+    }
+
+    public SolverContext(long maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    // A key width other than the last one drops every structure sized by it
+    private void fit(int keyWords) {
+        if (keyWords != this.keyWords) {
+            this.keyWords = keyWords;
+            heap = null;
+            bucketQueue = null;
+            keySet = null;
+            keyIntMap = null;
+            nodePool = null;
+            nodePoolHeap = null;
+            costNodePoolHeap = null;
+            packedKeyHeap = null;
+        }
+    }
+
+    // Frontier of the given type (see SearchAlgorithm.createFrontier), empty and set to the order
+    public Frontier frontier(int frontierType, int keyWords, Comparator<SearchNode> order,
+                             ToIntFunction<SearchNode> priority) {
+        fit(keyWords);
+        if (frontierType == SearchAlgorithm.FRONTIER_BUCKET) {
+            if (bucketQueue == null) {
+                bucketQueue = new BucketQueue(keyWords, priority);
+            } else {
+                bucketQueue.reset(priority);
+                reuses++;
+            }
+            return bucketQueue;
+        }
+        if (heap == null) {
+            heap = new IndexedNodeHeap(keyWords, order);
+        } else {
+            heap.reset(order);
+            reuses++;
+        }
+        return heap;
+    }
+
+    public KeySet keySet(int keyWords) {
+        fit(keyWords);
+        if (keySet == null || keySet.memoryUsage() > maxRetainedBytes) {
+            keySet = new PackedKeySet(keyWords);
+        } else {
+            keySet.clear();
+            reuses++;
+        }
+        return keySet;
+    }
+
+    public KeyIntMap keyIntMap(int keyWords) {
+        fit(keyWords);
+        if (keyIntMap == null || keyIntMap.memoryUsage() > maxRetainedBytes) {
+            keyIntMap = new PackedKeyIntMap(keyWords);
+        } else {
+            keyIntMap.clear();
+            reuses++;
+        }
+        return keyIntMap;
+    }
+
+    // Node pool with its heaps cleared; chunks allocated by earlier solves are filled again
+    public NodePool nodePool(int keyWords) {
+        fit(keyWords);
+        if (nodePool == null || nodePool.memoryUsage() > maxRetainedBytes) {
+            nodePool = new NodePool(keyWords);
+            nodePoolHeap = null;
+            costNodePoolHeap = null;
+        } else {
+            nodePool.clear();
+            reuses++;
+        }
+        return nodePool;
+    }
+
+    // Heap over the pool returned by nodePool(), ordered by f = g + h or by h alone
+    public NodePoolHeap nodePoolHeap(boolean withCost) {
+        NodePoolHeap frontier = withCost ? costNodePoolHeap : nodePoolHeap;
+        if (frontier == null) {
+            frontier = new NodePoolHeap(nodePool, withCost);
+            if (withCost) {
+                costNodePoolHeap = frontier;
+            } else {
+                nodePoolHeap = frontier;
+            }
+        } else {
+            frontier.clear();
+        }
+        return frontier;
+    }
+
+    public PackedKeyHeap packedKeyHeap(int keyWords) {
+        fit(keyWords);
+        if (packedKeyHeap == null || packedKeyHeap.memoryUsage() > maxRetainedBytes) {
+            packedKeyHeap = new PackedKeyHeap(keyWords);
+        } else {
+            packedKeyHeap.clear();
+            reuses++;
+        }
+        return packedKeyHeap;
+    }
+
+    // Rank bitmap for the table's states, or null when its ranks are not dense (see RankBitSet.forTable)
+    public RankBitSet rankBitSet(PieceTable table) {
+        if (!table.hasDenseRanks()) return null;
+
+        if (rankBitSet == null || rankBitSet.getCapacity() < table.getRankSpace()
+                || rankBitSet.memoryUsage() > maxRetainedBytes) {
+            rankBitSet = new RankBitSet(table.getRankSpace());
+        } else {
+            rankBitSet.clear();
+            reuses++;
+        }
+        return rankBitSet;
+    }
+
+    // Rank depth map for the table's states, or null when its ranks are not dense
+    public RankDepthMap rankDepthMap(PieceTable table) {
+        if (!table.hasDenseRanks()) return null;
+
+        if (rankDepthMap == null || rankDepthMap.getCapacity() < table.getRankSpace()
+                || rankDepthMap.memoryUsage() > maxRetainedBytes) {
+            rankDepthMap = new RankDepthMap(table.getRankSpace());
+        } else {
+            rankDepthMap.clear();
+            reuses++;
+        }
+        return rankDepthMap;
+    }
+
+    // Structures handed out again instead of allocated
+    public int getReuseCount() {
+        return reuses;
+    }
+
+    public long getMaxRetainedBytes() {
+        return maxRetainedBytes;
+    }
+}
@@ -1,16 +1,30 @@
 package src;
 
 import java.util.*;
+import java.util.function.ToIntFunction;
 
 public class UCS extends SearchAlgorithm {
 
+    public UCS() {
+        // Every move costs 1, so UCS runs as a layered BFS unless another frontier is chosen
+        this.frontierType = FRONTIER_LAYERS;
+    }
+
     @Override
     public List<RushHourGame> solve(RushHourGame initial) {
+        if (memoryLean) {
+            return solveLean(initial);
+        }
+        if (frontierType == FRONTIER_LAYERS) {
+            return solveLayered(initial);
+        }
+
         resetCounters();
         long startTime = System.currentTimeMillis();
 
-        // Priority queue ordered by g value (path cost)
-        PriorityQueue<SearchNode> frontier = new PriorityQueue<>(new Comparator<SearchNode>() {
+        // Frontier ordered by g value (path cost), one node per state
+        long[] key = new long[initial.getKeyWords()];
+        Frontier frontier = createFrontier(key.length, new Comparator<SearchNode>() {
             @Override
             public int compare(SearchNode n1, SearchNode n2) {
                 if (n1.g != n2.g) {
@@ -19,44 +33,61 @@ public class UCS extends SearchAlgorithm {
                 // Tie-breaking: prefer older nodes (FIFO)
                 return 0;
             }
-        });
+        }, node -> node.g);
 
-        Set<RushHourGame> explored = new HashSet<>();
+        // Explored states are kept as packed keys, not state objects. When the puzzle's rank
+        // space is small (see PieceTable.hasDenseRanks), the explored set is one bit per rank
+        RankBitSet exploredRanks = createRankBitSet(initial.getPieceTable());
+        KeySet explored = exploredRanks == null ? createKeySet(key.length) : null;
+        MoveCursor moves = new MoveCursor();
 
         // Initialize with starting state
-        frontier.add(new SearchNode(initial, null, 0, 0, "Initial"));
+        SearchNode initialNode = new SearchNode(initial, null, 0, 0, SearchNode.NO_MOVE);
+        if (initial.isGoalState()) {
+            executionTime = System.currentTimeMillis() - startTime;
+            solution = buildSolution(initialNode);
+            return solution;
+        }
+        initial.packKey(key);
+        frontier.add(key, initialNode);
 
         while (!frontier.isEmpty()) {
             SearchNode node = frontier.poll();
             nodesVisited++;
 
-            // Check if goal state reached
-            if (node.state.isGoalState()) {
-                executionTime = System.currentTimeMillis() - startTime;
-                solution = buildSolution(node);
-                return solution;
+            if (exploredRanks != null) {
+                exploredRanks.add(node.state.getRank());
+            } else {
+                node.state.packKey(key);
+                explored.add(key);
             }
 
-            explored.add(node.state);
-
-            // Expand current node
-            for (RushHourGame nextState : node.state.getNextStates()) {
-                if (!explored.contains(nextState)) {
+            // Expand current node; a child state is only built when it is kept
+            for (moves.reset(node.state); moves.next(); ) {
+                moves.packKey(key);
+                boolean seen = exploredRanks != null ? exploredRanks.contains(moves.rank()) : explored.contains(key);
+                if (!seen) {
                     // Calculate new cost (each move has cost 1)
                     int newCost = node.g + 1;
 
                     // Check if state is already in frontier
-                    SearchNode existingNode = findInFrontier(frontier, nextState);
+                    SearchNode frontierNode = frontier.get(key);
+
+                    if (frontierNode == null) {
+                        // Goal test on generation: nodes leave the frontier in order of g, so
+                        // no goal can be cheaper than the first one generated
+                        SearchNode child = new SearchNode(moves.child(), node, newCost, 0, moves.move());
+                        if (moves.isGoal()) {
+                            executionTime = System.currentTimeMillis() - startTime;
+                            solution = buildSolution(child);
+                            return solution;
+                        }
 
-                    if (existingNode == null) {
                         // Add new node to frontier
-                        String action = getAction(node.state, nextState);
-                        frontier.add(new SearchNode(nextState, node, newCost, 0, action));
-                    } else if (newCost < existingNode.g) {
+                        frontier.add(key, child);
+                    } else if (newCost < frontierNode.g) {
                         // Found better path to existing node
-                        frontier.remove(existingNode);
-                        String action = getAction(node.state, nextState);
-                        frontier.add(new SearchNode(nextState, node, newCost, 0, action));
+                        frontier.decreaseKey(key, new SearchNode(frontierNode.state, node, newCost, 0, moves.move()));
                     }
                 }
             }
@@ -66,6 +97,172 @@ public class UCS extends SearchAlgorithm {
         return null; // No solution found
     }
 
+    // Breadth-first search by layers: with unit costs the frontier only ever holds nodes of
+    // depth g and g + 1, so two FIFO lists replace the priority queue. A state is marked seen
+    // when it is generated, which makes the explored set and the frontier index one set, and
+    // it can never be reached again more cheaply, so there is no decrease-key either
+    private List<RushHourGame> solveLayered(RushHourGame initial) {
+        resetCounters();
+        long startTime = System.currentTimeMillis();
+
+        // Seen states by rank when the rank space is small, unless bitstate hashing caps the memory
+        long[] key = new long[initial.getKeyWords()];
+        RankBitSet seenRanks = isBitstate() ? null : createRankBitSet(initial.getPieceTable());
+        KeySet seen = seenRanks == null ? createSeenSet(key.length) : null;
+        MoveCursor moves = new MoveCursor();
+
+        // With bitstate hashing the nodes share its memory, each with a slot in a layer list.
+        // Every node created counts, since the layers keep their ancestors alive
+        long nodeLimit = bitstateNodeLimit(SEARCH_NODE_BYTES + 8);
+        long created = 1;
+
+        SearchNode initialNode = new SearchNode(initial, null, 0, 0, SearchNode.NO_MOVE);
+        if (initial.isGoalState()) {
+            executionTime = System.currentTimeMillis() - startTime;
+            solution = buildSolution(initialNode);
+            return solution;
+        }
+        if (seenRanks != null) {
+            seenRanks.add(initial.getRank());
+        } else {
+            initial.packKey(key);
+            seen.add(key);
+        }
+
+        ArrayList<SearchNode> layer = new ArrayList<>();
+        ArrayList<SearchNode> nextLayer = new ArrayList<>();
+        layer.add(initialNode);
+
+        while (!layer.isEmpty()) {
+            for (int i = 0; i < layer.size(); i++) {
+                SearchNode node = layer.get(i);
+                layer.set(i, null);
+                nodesVisited++;
+
+                for (moves.reset(node.state); moves.next(); ) {
+                    boolean added;
+                    if (seenRanks != null) {
+                        added = seenRanks.add(moves.rank());
+                    } else {
+                        moves.packKey(key);
+                        added = seen.add(key);
+                    }
+                    if (!added) continue;
+                    if (++created > nodeLimit) {
+                        bitstateLimitReached = true;
+                        executionTime = System.currentTimeMillis() - startTime;
+                        return null;
+                    }
+
+                    // Goal test on generation: every node of this layer is one move deeper
+                    // than all nodes expanded before it
+                    SearchNode child = new SearchNode(moves.child(), node, node.g + 1, 0, moves.move());
+                    if (moves.isGoal()) {
+                        executionTime = System.currentTimeMillis() - startTime;
+                        solution = buildSolution(child);
+                        return solution;
+                    }
+                    nextLayer.add(child);
+                }
+            }
+
+            ArrayList<SearchNode> expanded = layer;
+            layer = nextLayer;
+            nextLayer = expanded;
+            nextLayer.clear();
+        }
+
+        executionTime = System.currentTimeMillis() - startTime;
+        return null; // No solution found
+    }
+
+    // Memory-lean layered BFS: the layers hold packed keys and a reached state is only recorded
+    // with its depth, two bits per rank when the rank space is small (see RankDepthMap) and a
+    // packed key -> depth map otherwise. The path is recovered from the depths at the end
+    private List<RushHourGame> solveLean(RushHourGame initial) {
+        resetCounters();
+        long startTime = System.currentTimeMillis();
+
+        int words = initial.getKeyWords();
+        long[] key = new long[words];
+        long[] probe = new long[words];
+        RankDepthMap depthRanks = createRankDepthMap(initial.getPieceTable());
+        KeyIntMap depths = depthRanks == null ? createKeyIntMap(words) : null;
+        ToIntFunction<RushHourGame> depthOf;
+        if (depthRanks != null) {
+            depthOf = state -> depthRanks.depthMod3(state.getRank());
+        } else {
+            depthOf = state -> {
+                state.packKey(probe);
+                return depths.get(probe, -1);
+            };
+        }
+        int modulus = depthRanks != null ? 3 : 0;
+
+        if (initial.isGoalState()) {
+            executionTime = System.currentTimeMillis() - startTime;
+            solution = recoverSolution(initial, 0, depthOf, modulus);
+            return solution;
+        }
+        initial.packKey(key);
+        if (depthRanks != null) {
+            depthRanks.add(initial.getRank(), 0);
+        } else {
+            depths.put(key, 0);
+        }
+
+        WorkingBoard board = new WorkingBoard(initial);
+        MoveCursor moves = new MoveCursor();
+        long[] layer = Arrays.copyOf(key, 64 * words);
+        long[] nextLayer = new long[64 * words];
+        int layerSize = 1;
+
+        for (int depth = 0; layerSize > 0; depth++) {
+            int nextSize = 0;
+            for (int i = 0; i < layerSize; i++) {
+                System.arraycopy(layer, i * words, key, 0, words);
+                board.load(key);
+                nodesVisited++;
+
+                for (moves.reset(board); moves.next(); ) {
+                    moves.packKey(key);
+                    boolean added;
+                    if (depthRanks != null) {
+                        added = depthRanks.add(moves.rank(), depth + 1);
+                    } else {
+                        added = !depths.containsKey(key);
+                        if (added) {
+                            depths.put(key, depth + 1);
+                        }
+                    }
+                    if (!added) continue;
+
+                    // Goal test on generation, as in solveLayered
+                    if (moves.isGoal()) {
+                        board.applyMove(moves.move());
+                        solution = recoverSolution(board.snapshot(), depth + 1, depthOf, modulus);
+                        executionTime = System.currentTimeMillis() - startTime;
+                        return solution;
+                    }
+
+                    if ((nextSize + 1) * words > nextLayer.length) {
+                        nextLayer = Arrays.copyOf(nextLayer, nextLayer.length * 2);
+                    }
+                    System.arraycopy(key, 0, nextLayer, nextSize * words, words);
+                    nextSize++;
+                }
+            }
+
+            long[] expanded = layer;
+            layer = nextLayer;
+            nextLayer = expanded;
+            layerSize = nextSize;
+        }
+
+        executionTime = System.currentTimeMillis() - startTime;
+        return null; // No solution found
+    }
+
     @Override
     public String getAlgorithmName() {
         return "Uniform Cost Search (UCS)";
@@ -78,23 +275,19 @@ public class UCS extends SearchAlgorithm {
                 "because each move has the same cost.";
     }
 
-    @Override
-    protected SearchNode findInFrontier(PriorityQueue<SearchNode> frontier, RushHourGame state) {
-        for (SearchNode n : frontier) {
-            if (n.state.equals(state)) {
-                return n;
-            }
-        }
-        return null;
-    }
-
     public Map<String, Object> getStatistics() {
         Map<String, Object> stats = new HashMap<>();
         stats.put("algorithm", getAlgorithmName());
         stats.put("nodes_visited", nodesVisited);
         stats.put("execution_time", executionTime);
         stats.put("solution_length", solution != null ? solution.size() - 1 : -1);
-        stats.put("optimal", true); // UCS always finds optimal solution if one exists
+        // UCS always finds optimal solution if one exists, unless bitstate hashing pruned it
+        boolean approximate = isBitstate() && frontierType == FRONTIER_LAYERS && !memoryLean;
+        stats.put("optimal", !approximate);
+        if (approximate) {
+            stats.put("bitstate_false_positive_rate", getBitstateFalsePositiveRate());
+            stats.put("bitstate_limit_reached", bitstateLimitReached);
+        }
         return stats;
     }
 
@@ -0,0 +1,96 @@
+package src;
+
+// Mutable copy of a state for depth-first engines: applyMove / undoMove slide a piece in place,
+// updating the occupancy, Zobrist key and exit lane (and through them the goal test) in O(1).
+// A working board belongs to one search on one thread; snapshot() turns the current position
+// back into an immutable RushHourGame.
+public final class WorkingBoard {
+    private final PieceTable table;
+    private final byte[] offsets;
+    private long occupied;
+    private final long[] rowBits;     // boards over 64 cells, see PieceTable.rowOccupancy
+    private long key;
+    private long exitLane;
+
+    public WorkingBoard(RushHourGame state) {
+        this.table = state.getPieceTable();
+        this.offsets = state.getOffsets();
+        this.occupied = table.isBitboard() ? table.occupancy(offsets) : 0L;
+        this.rowBits = table.isBitboard() ? null : table.rowOccupancy(offsets);
+        this.key = state.getZobristKey();
+        this.exitLane = table.exitLane(offsets);
+    }
+
+    // Moves the board to the state with this packed key, see PieceTable.unpackKey
+    public void load(long[] packedKey) {
+        table.unpackKey(packedKey, 0, offsets);
+        if (table.isBitboard()) {
+            occupied = table.occupancy(offsets);
+        } else {
+            long[] rows = table.rowOccupancy(offsets);
+            System.arraycopy(rows, 0, rowBits, 0, rows.length);
+        }
+        key = table.zobristKey(offsets);
+        exitLane = table.exitLane(offsets);
+    }
+
+    public void applyMove(int move) {
+        slide(MoveCursor.piece(move), MoveCursor.source(move), MoveCursor.target(move));
+    }
+
+    public void undoMove(int move) {
+        slide(MoveCursor.piece(move), MoveCursor.target(move), MoveCursor.source(move));
+    }
+
+    private void slide(int p, int from, int to) {
+        offsets[p] = (byte) to;
+        key ^= table.zobrist(p, from) ^ table.zobrist(p, to);
+        exitLane ^= table.exitLaneMask(p, from) ^ table.exitLaneMask(p, to);
+        if (table.isBitboard()) {
+            occupied = (occupied & ~table.mask(p, from)) | table.mask(p, to);
+        } else {
+            table.slideRows(rowBits, p, from, to);
+        }
+    }
+
+    void generateMoves(MoveCursor out) {
+        out.start(table, offsets, occupied, rowBits, key, exitLane);
+    }
+
+    public boolean isGoalState() {
+        return RushHourGame.isGoal(table, offsets, exitLane);
+    }
+
+    public int getHeuristic1() {
+        return RushHourGame.heuristic1(table, offsets, exitLane);
+    }
+
+    public int getHeuristic2() {
+        return RushHourGame.heuristic2(table, offsets, exitLane);
+    }
+
+    public int getBlocker(int p, boolean forward) {
+        return RushHourGame.blocker(table, offsets, occupied, rowBits, p, forward);
+    }
+
+    public int[] getExitBlockers() {
+        return RushHourGame.exitBlockers(table, offsets, exitLane);
+    }
+
+    public long getZobristKey() {
+        return key;
+    }
+
+    public int getKeyWords() {
+        return table.getKeyWords();
+    }
+
+    public void packKey(long[] dest) {
+        table.packKey(offsets, dest, 0);
+    }
+
+    // Immutable copy of the current position
+    public RushHourGame snapshot() {
+        return RushHourGame.of(table, offsets);
+    }
+}
@@ -0,0 +1,101 @@
+package src;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// Measures how well the Zobrist keys separate the states of one puzzle.
+// Walks the reachable states breadth-first (up to a limit), tracks them by their exact offsets
+// and counts how often two different states share a 64-bit key or a 32-bit hash code.
+public final class ZobristStatistics {
+    private int statesVisited;
+    private int keyCollisions;
+    private int hashCollisions;
+    private boolean complete;
+    private long timeElapsed;
+
+    private ZobristStatistics() {
+    }
+
+    public static ZobristStatistics measure(RushHourGame initialState, int maxStates) {
+        ZobristStatistics stats = new ZobristStatistics();
+        long startTime = System.currentTimeMillis();
+
+        // Exact state identity independent of the keys being measured: the rank of the state
+        // when the puzzle has a small rank space, otherwise its offsets bytes
+        RankBitSet seenRanks = RankBitSet.forTable(initialState.getPieceTable());
+        Set<ByteBuffer> seen = seenRanks == null ? new HashSet<>() : null;
+        Map<Long, ByteBuffer> byKey = new HashMap<>();
+        Map<Integer, ByteBuffer> byHash = new HashMap<>();
+        Queue<RushHourGame> queue = new ArrayDeque<>();
+
+        markSeen(initialState, seenRanks, seen);
+        queue.add(initialState);
+
+        while (!queue.isEmpty() && stats.statesVisited < maxStates) {
+            RushHourGame state = queue.poll();
+            ByteBuffer offsets = ByteBuffer.wrap(state.getOffsets());
+            stats.statesVisited++;
+
+            ByteBuffer sameKey = byKey.putIfAbsent(state.getZobristKey(), offsets);
+            if (sameKey != null && !sameKey.equals(offsets)) {
+                stats.keyCollisions++;
+            }
+            ByteBuffer sameHash = byHash.putIfAbsent(state.hashCode(), offsets);
+            if (sameHash != null && !sameHash.equals(offsets)) {
+                stats.hashCollisions++;
+            }
+
+            for (RushHourGame next : state.getNextStates()) {
+                if (markSeen(next, seenRanks, seen)) {
+                    queue.add(next);
+                }
+            }
+        }
+
+        stats.complete = queue.isEmpty();
+        stats.timeElapsed = System.currentTimeMillis() - startTime;
+        return stats;
+    }
+
+    private static boolean markSeen(RushHourGame state, RankBitSet seenRanks, Set<ByteBuffer> seen) {
+        if (seenRanks != null) return seenRanks.add(state.getRank());
+        return seen.add(ByteBuffer.wrap(state.getOffsets()));
+    }
+
+    // Expected number of colliding pairs among n uniformly random keys of the given width
+    public static double expectedCollisions(long n, int bits) {
+        return (double) n * (n - 1) / 2.0 / Math.pow(2, bits);
+    }
+
+    public int getStatesVisited() { return statesVisited; }
+    public int getKeyCollisions() { return keyCollisions; }
+    public int getHashCollisions() { return hashCollisions; }
+    public boolean isComplete() { return complete; }
+    public long getTimeElapsed() { return timeElapsed; }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("statesVisited", statesVisited);
+        stats.put("complete", complete);
+        stats.put("keyCollisions", keyCollisions);
+        stats.put("expectedKeyCollisions", expectedCollisions(statesVisited, 64));
+        stats.put("hashCollisions", hashCollisions);
+        stats.put("expectedHashCollisions", expectedCollisions(statesVisited, 32));
+        stats.put("timeElapsed", timeElapsed);
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("States checked: ").append(statesVisited)
+                .append(complete ? " (entire reachable space)" : " (limit reached)").append("\n");
+        sb.append(String.format("64-bit key collisions: %d (expected %.2e)%n",
+                keyCollisions, expectedCollisions(statesVisited, 64)));
+        sb.append(String.format("32-bit hash collisions: %d (expected %.2f, rate %.4f%%)%n",
+                hashCollisions, expectedCollisions(statesVisited, 32),
+                statesVisited == 0 ? 0.0 : 100.0 * hashCollisions / statesVisited));
+        sb.append("Time: ").append(timeElapsed).append(" ms");
+        return sb.toString();
+    }
+}